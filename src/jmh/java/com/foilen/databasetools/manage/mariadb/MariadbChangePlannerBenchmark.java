@@ -0,0 +1,90 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.foilen.databasetools.manage.plan.ChangePlan;
+
+/**
+ * The diff of the users and their grants. About 10% of the users are missing, extra or have different grants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MariadbChangePlannerBenchmark {
+
+    private static final List<String> GRANTS = Arrays.asList("ALTER", "CREATE", "DELETE", "DROP", "INDEX", "INSERT", "SELECT", "UPDATE");
+
+    private static MariadbManagerConfigUserAndGrants user(Random random, String name) {
+        MariadbManagerConfigUserAndGrants user = new MariadbManagerConfigUserAndGrants(name, "%");
+        user.setHashedPassword("*" + Long.toHexString(random.nextLong()).toUpperCase());
+        user.setGlobalGrants(new ArrayList<>(Arrays.asList("PROCESS", "SHOW DATABASES")));
+        user.setGrantsByDatabase(new HashMap<>());
+        user.getGrantsByDatabase().put("db_" + name, new ArrayList<>(GRANTS));
+        user.getGrantsByDatabase().put("shared_" + random.nextInt(10), new ArrayList<>(GRANTS.subList(0, 1 + random.nextInt(GRANTS.size()))));
+        return user;
+    }
+
+    @Param({ "1000", "10000", "100000" })
+    private int userCount;
+
+    private List<MariadbManagerConfigUserAndGrants> currentUsersAndGrants;
+    private List<MariadbManagerConfigUserAndGrants> desiredUsersAndGrants;
+
+    @Benchmark
+    public ChangePlan<MariadbChangeOperation> planAllUsersAndGrants() {
+        MariadbChangePlanner planner = new MariadbChangePlanner();
+        planner.planAllUsersAndGrants(currentUsersAndGrants, null, desiredUsersAndGrants);
+        return planner.getPlan();
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(userCount);
+        currentUsersAndGrants = new ArrayList<>();
+        desiredUsersAndGrants = new ArrayList<>();
+        for (int i = 0; i < userCount; ++i) {
+            MariadbManagerConfigUserAndGrants desired = user(random, "user" + i);
+            desiredUsersAndGrants.add(desired);
+            switch (i % 30) {
+            case 0:
+                // Missing
+                break;
+            case 1:
+                // Extra one to delete
+                currentUsersAndGrants.add(user(random, "old" + i));
+                break;
+            case 2:
+                // Different grants
+                currentUsersAndGrants.add(user(random, "user" + i));
+                break;
+            default:
+                // The same
+                currentUsersAndGrants.add(desired);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.foilen.databasetools.manage.plan.ChangePlan;
+
+/**
+ * The diff of the users and their roles (the sorted database / role tuples of each user). About 10% of the users are missing, extra or have different roles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MongodbChangePlannerBenchmark {
+
+    private static MongodbManagerConfigUserAndRoles user(Random random, String name) {
+        MongodbManagerConfigUserAndRoles user = new MongodbManagerConfigUserAndRoles("app" + random.nextInt(10), name);
+        user.setRolesByDatabase(new HashMap<>());
+        user.getRolesByDatabase().put("admin", new ArrayList<>(Arrays.asList("clusterMonitor")));
+        user.getRolesByDatabase().put(user.getDatabase(), new ArrayList<>(Arrays.asList("readWrite", "role" + random.nextInt(20), "role" + random.nextInt(20))));
+        return user;
+    }
+
+    @Param({ "1000", "10000", "100000" })
+    private int userCount;
+
+    private List<MongodbManagerConfigUserAndRoles> currentUsersAndRoles;
+    private List<MongodbManagerConfigUserAndRoles> desiredUsersAndRoles;
+
+    @Benchmark
+    public ChangePlan<MongodbChangeOperation> planAllUsersAndRoles() {
+        MongodbChangePlanner planner = new MongodbChangePlanner();
+        planner.planAllUsersAndRoles(currentUsersAndRoles, null, desiredUsersAndRoles);
+        return planner.getPlan();
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(userCount);
+        currentUsersAndRoles = new ArrayList<>();
+        desiredUsersAndRoles = new ArrayList<>();
+        for (int i = 0; i < userCount; ++i) {
+            MongodbManagerConfigUserAndRoles desired = user(random, "user" + i);
+            desiredUsersAndRoles.add(desired);
+            switch (i % 30) {
+            case 0:
+                // Missing
+                break;
+            case 1:
+                // Extra one to delete
+                currentUsersAndRoles.add(user(random, "old" + i));
+                break;
+            case 2:
+                // Different roles
+                MongodbManagerConfigUserAndRoles current = user(random, "user" + i);
+                current.setDatabase(desired.getDatabase());
+                currentUsersAndRoles.add(current);
+                break;
+            default:
+                // The same
+                currentUsersAndRoles.add(desired);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+
+/**
+ * The conversion of the roles between the configuration format and the flat one. There is one role per user: 10 roles per database with 3 collection privileges each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MongodbManagerConfigBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    private int userCount;
+
+    private MongodbManagerConfig config;
+    private List<MongodbFlatRole> flatRoles;
+
+    @Benchmark
+    public MongodbManagerConfig loadRoles() {
+        MongodbManagerConfig loaded = new MongodbManagerConfig();
+        loaded.loadRoles(flatRoles);
+        return loaded;
+    }
+
+    @Setup
+    public void setup() {
+        config = new MongodbManagerConfig();
+
+        config.setGlobalClusterRoles(new HashMap<>());
+        config.getGlobalClusterRoles().put("monitor", new ArrayList<>(Arrays.asList("serverStatus", "listDatabases")));
+
+        config.setGlobalDatabaseRoles(new HashMap<>());
+        config.getGlobalDatabaseRoles().put("readAll", new ArrayList<>(Arrays.asList(new MongodbManagerConfigDatabasePrivilege(null, null, Arrays.asList("find")))));
+
+        config.setRoleByDatabase(new HashMap<>());
+        for (int i = 0; i < userCount; ++i) {
+            Map<String, List<MongodbManagerConfigCollectionPrivilege>> privilegesByRoleName = config.getRoleByDatabase().computeIfAbsent("app" + (i / 10), k -> new HashMap<>());
+            privilegesByRoleName.put("role" + (i % 10), new ArrayList<>(Arrays.asList( //
+                    new MongodbManagerConfigCollectionPrivilege("orders", Arrays.asList("find", "insert", "update")), //
+                    new MongodbManagerConfigCollectionPrivilege("customers", Arrays.asList("find")), //
+                    new MongodbManagerConfigCollectionPrivilege("audit" + i, Arrays.asList("insert")) //
+            )));
+        }
+
+        flatRoles = config.toFlatRoles();
+    }
+
+    @Benchmark
+    public List<MongodbFlatRole> toFlatRoles() {
+        return config.toFlatRoles();
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Sorting the privileges (what the role diff does before comparing them) to measure {@link MongodbFlatPrivilege#compareTo(MongodbFlatPrivilege)}. Some are cluster ones and some have no collection
+ * to go through all the branches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MongodbFlatPrivilegeBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    private int userCount;
+
+    private List<MongodbFlatPrivilege> privileges;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(userCount);
+        privileges = new ArrayList<>();
+        for (int i = 0; i < userCount; ++i) {
+            switch (random.nextInt(10)) {
+            case 0:
+                privileges.add(new MongodbFlatPrivilege(null, null, true, Arrays.asList("serverStatus")));
+                break;
+            case 1:
+                privileges.add(new MongodbFlatPrivilege("app" + random.nextInt(100), null, null, Arrays.asList("find")));
+                break;
+            default:
+                privileges.add(new MongodbFlatPrivilege("app" + random.nextInt(100), "collection" + random.nextInt(1000), null, Arrays.asList("find")));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<MongodbFlatPrivilege> sort() {
+        List<MongodbFlatPrivilege> sorted = new ArrayList<>(privileges);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+}
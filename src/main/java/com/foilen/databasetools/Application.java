@@ -18,10 +18,12 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 
 import com.foilen.databasetools.manage.Command;
+import com.foilen.databasetools.manage.GenerateManageConfigCommand;
 import com.foilen.databasetools.manage.MariadbCreateManageConfigCommand;
 import com.foilen.databasetools.manage.MariadbManageCommand;
 import com.foilen.databasetools.manage.MongodbCreateManageConfigCommand;
 import com.foilen.databasetools.manage.MongodbManageCommand;
+import com.foilen.databasetools.metrics.StatementTimings;
 import com.foilen.smalltools.JavaEnvironmentValues;
 import com.foilen.smalltools.tools.AbstractBasics;
 import com.foilen.smalltools.tools.ApplicationResourceUsageTools;
@@ -36,6 +38,7 @@ public class Application extends AbstractBasics {
     }
 
     private final List<Command<?>> commands = Arrays.asList( //
+            new GenerateManageConfigCommand(), //
             new MariadbCreateManageConfigCommand(), //
             new MariadbManageCommand(), //
             new MongodbCreateManageConfigCommand(), //
@@ -109,6 +112,7 @@ public class Application extends AbstractBasics {
                     .setShowThreadStackstrace(false) //
                     .setShowSystemMemory(false) //
                     .start();
+            StatementTimings.startSummary(60000); // 1 minute
 
         } catch (Exception e) {
             logger.error("Problem starting the application", e);
@@ -0,0 +1,281 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.connection;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * A small pool of physical JDBC connections. The connections given are proxies that go back in the pool when closed.
+ */
+public class JdbcConnectionPool extends AbstractBasics implements DataSource, Closeable {
+
+    private static class IdleConnection {
+
+        private Connection connection;
+        private long idleSince = System.currentTimeMillis();
+
+        public IdleConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+    }
+
+    private class PooledConnectionHandler implements InvocationHandler {
+
+        private Connection connection;
+        private boolean closed;
+
+        public PooledConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    release(connection);
+                }
+                return null;
+            case "isClosed":
+                return closed || connection.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Pooled " + connection;
+            }
+
+            if (closed) {
+                throw new SQLException("The connection is already closed");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+    }
+
+    private JdbcUriConfigConnection configConnection;
+    private JdbcConnectionPoolConfig config;
+
+    private Semaphore availablePermits;
+    private Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+    private boolean closed;
+
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    public JdbcConnectionPool(JdbcUriConfigConnection configConnection, JdbcConnectionPoolConfig config) {
+        this.configConnection = configConnection;
+        this.config = config;
+        this.availablePermits = new Semaphore(config.getMaxSize(), true);
+    }
+
+    @Override
+    public void close() {
+        List<IdleConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+        }
+        logger.info("Closing pool for {} with {} idle connections", configConnection, toClose.size());
+        toClose.forEach(it -> closeQuietly(it.connection));
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            logger.debug("Problem closing a connection", e);
+        }
+    }
+
+    /**
+     * Close the connections that were idle for too long.
+     */
+    public void evictIdle() {
+        List<Connection> toClose = new ArrayList<>();
+        long evictBefore = System.currentTimeMillis() - config.getIdleTimeoutInMs();
+        synchronized (this) {
+            Iterator<IdleConnection> it = idleConnections.iterator();
+            while (it.hasNext()) {
+                IdleConnection idleConnection = it.next();
+                if (idleConnection.idleSince < evictBefore) {
+                    it.remove();
+                    toClose.add(idleConnection.connection);
+                }
+            }
+        }
+        if (!toClose.isEmpty()) {
+            logger.info("Evicting {} idle connections for {}", toClose.size(), configConnection);
+            toClose.forEach(this::closeQuietly);
+        }
+    }
+
+    public JdbcConnectionPoolConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        // Wait for a free slot
+        try {
+            if (!availablePermits.tryAcquire(config.getAcquireTimeoutInMs(), TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out while waiting for a connection in the pool");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection in the pool", e);
+        }
+
+        try {
+            Connection connection = takeIdleConnection();
+            if (connection == null) {
+                logger.debug("Opening a new connection for {}", configConnection);
+                connection = DriverManager.getConnection(configConnection.getJdbcUri());
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new PooledConnectionHandler(connection));
+        } catch (SQLException | RuntimeException e) {
+            availablePermits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only supports the credentials of the JDBC URI");
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    private void release(Connection connection) {
+        try {
+            boolean reusable = !connection.isClosed();
+            if (reusable && !connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            synchronized (this) {
+                if (reusable && !closed) {
+                    idleConnections.push(new IdleConnection(connection));
+                    connection = null;
+                }
+            }
+        } catch (SQLException e) {
+            logger.debug("The connection cannot be reused", e);
+        } finally {
+            if (connection != null) {
+                closeQuietly(connection);
+            }
+            availablePermits.release();
+        }
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    /**
+     * Take the most recently used idle connection that is still valid.
+     *
+     * @return the connection or null if none is available
+     */
+    private Connection takeIdleConnection() throws SQLException {
+        while (true) {
+            IdleConnection idleConnection;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("The pool is closed");
+                }
+                idleConnection = idleConnections.poll();
+            }
+            if (idleConnection == null) {
+                return null;
+            }
+
+            // Validate if idle for a while
+            long idleFor = System.currentTimeMillis() - idleConnection.idleSince;
+            if (idleFor >= config.getIdleTimeoutInMs()) {
+                closeQuietly(idleConnection.connection);
+                continue;
+            }
+            if (idleFor >= config.getValidateAfterIdleInMs() && !idleConnection.connection.isValid(config.getValidationTimeoutInSec())) {
+                logger.info("Dropping an invalid connection for {}", configConnection);
+                closeQuietly(idleConnection.connection);
+                continue;
+            }
+
+            return idleConnection.connection;
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+}
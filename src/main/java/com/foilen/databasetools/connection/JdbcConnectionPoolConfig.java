@@ -0,0 +1,97 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.connection;
+
+import java.util.Objects;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+public class JdbcConnectionPoolConfig extends AbstractBasics {
+
+    private int maxSize = 5;
+    private long acquireTimeoutInMs = 60000;
+    private long idleTimeoutInMs = 10 * 60000;
+    private long validateAfterIdleInMs = 30000;
+    private int validationTimeoutInSec = 5;
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        JdbcConnectionPoolConfig other = (JdbcConnectionPoolConfig) obj;
+        return maxSize == other.maxSize //
+                && acquireTimeoutInMs == other.acquireTimeoutInMs //
+                && idleTimeoutInMs == other.idleTimeoutInMs //
+                && validateAfterIdleInMs == other.validateAfterIdleInMs //
+                && validationTimeoutInSec == other.validationTimeoutInSec;
+    }
+
+    public long getAcquireTimeoutInMs() {
+        return acquireTimeoutInMs;
+    }
+
+    public long getIdleTimeoutInMs() {
+        return idleTimeoutInMs;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getValidateAfterIdleInMs() {
+        return validateAfterIdleInMs;
+    }
+
+    public int getValidationTimeoutInSec() {
+        return validationTimeoutInSec;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxSize, acquireTimeoutInMs, idleTimeoutInMs, validateAfterIdleInMs, validationTimeoutInSec);
+    }
+
+    public void setAcquireTimeoutInMs(long acquireTimeoutInMs) {
+        this.acquireTimeoutInMs = acquireTimeoutInMs;
+    }
+
+    public void setIdleTimeoutInMs(long idleTimeoutInMs) {
+        this.idleTimeoutInMs = idleTimeoutInMs;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setValidateAfterIdleInMs(long validateAfterIdleInMs) {
+        this.validateAfterIdleInMs = validateAfterIdleInMs;
+    }
+
+    public void setValidationTimeoutInSec(int validationTimeoutInSec) {
+        this.validationTimeoutInSec = validationTimeoutInSec;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("JdbcConnectionPoolConfig [maxSize=").append(maxSize);
+        builder.append(", acquireTimeoutInMs=").append(acquireTimeoutInMs);
+        builder.append(", idleTimeoutInMs=").append(idleTimeoutInMs);
+        builder.append(", validateAfterIdleInMs=").append(validateAfterIdleInMs);
+        builder.append(", validationTimeoutInSec=").append(validationTimeoutInSec);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pools shared by everything in the process. They live until the JVM stops. There is one pool per URI and its settings are the ones of the first config that used it.
+ */
+public final class JdbcConnectionPools {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcConnectionPools.class);
+
+    private static final Map<JdbcUriConfigConnection, JdbcConnectionPool> poolByConnection = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "JdbcConnectionPools-Eviction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        evictionExecutor.scheduleWithFixedDelay(() -> poolByConnection.values().forEach(JdbcConnectionPool::evictIdle), 1, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(JdbcConnectionPools::closeAll, "JdbcConnectionPools-Shutdown"));
+    }
+
+    public static void closeAll() {
+        List<JdbcConnectionPool> pools = new ArrayList<>(poolByConnection.values());
+        poolByConnection.clear();
+        pools.forEach(JdbcConnectionPool::close);
+    }
+
+    /**
+     * Get the pool for that connection or create it with the provided configuration. When the pool already exists with other settings, they are kept and a warning is logged.
+     *
+     * @param configConnection
+     *            the connection
+     * @param config
+     *            the configuration to use if the pool does not exist yet
+     * @return the pool
+     */
+    public static JdbcConnectionPool getOrCreate(JdbcUriConfigConnection configConnection, JdbcConnectionPoolConfig config) {
+        JdbcUriConfigConnection key = new JdbcUriConfigConnection().setJdbcUri(configConnection.getJdbcUri());
+        JdbcConnectionPoolConfig poolConfig = config == null ? new JdbcConnectionPoolConfig() : config;
+        JdbcConnectionPool pool = poolByConnection.computeIfAbsent(key, c -> new JdbcConnectionPool(c, poolConfig));
+        if (!pool.getConfig().equals(poolConfig)) {
+            logger.warn("The pool for {} already exists with {}. Ignoring the different settings {}", key, pool.getConfig(), poolConfig);
+        }
+        return pool;
+    }
+
+    private JdbcConnectionPools() {
+    }
+
+}
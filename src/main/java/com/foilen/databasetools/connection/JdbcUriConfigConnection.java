@@ -9,6 +9,9 @@
  */
 package com.foilen.databasetools.connection;
 
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.foilen.smalltools.tools.AbstractBasics;
 import com.foilen.smalltools.tools.JdbcUriTools;
 
@@ -19,10 +22,53 @@ public class JdbcUriConfigConnection extends AbstractBasics {
     public JdbcUriConfigConnection() {
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        JdbcUriConfigConnection other = (JdbcUriConfigConnection) obj;
+        return Objects.equals(jdbcUri, other.jdbcUri);
+    }
+
     public String getJdbcUri() {
         return jdbcUri;
     }
 
+    /**
+     * Get the server(s) targeted by the URI (the lowercase hosts and ports without the credentials, the database and the options) to group the connections going to the same server.
+     *
+     * @return the server or null if there is no URI
+     */
+    @JsonIgnore
+    public String getServer() {
+        if (jdbcUri == null) {
+            return null;
+        }
+
+        String server = jdbcUri;
+        int schemeEnd = server.indexOf("://");
+        if (schemeEnd != -1) {
+            server = server.substring(schemeEnd + 3);
+        }
+        for (char end : new char[] { '/', '?' }) {
+            int endPosition = server.indexOf(end);
+            if (endPosition != -1) {
+                server = server.substring(0, endPosition);
+            }
+        }
+        server = server.substring(server.lastIndexOf('@') + 1);
+        return server.toLowerCase();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(jdbcUri);
+    }
+
     public JdbcUriConfigConnection setJdbcUri(String jdbcUri) {
         this.jdbcUri = jdbcUri;
         return this;
@@ -0,0 +1,144 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.connection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+/**
+ * The MongoDB clients shared by everything in the process. A client is created on the first {@link #acquire(JdbcUriConfigConnection)} for a URI, shared by all the users of the same
+ * normalized URI and closed when the last one {@link #release(JdbcUriConfigConnection)} it or when the JVM stops.
+ */
+public final class MongodbClients {
+
+    private static class MongodbClientEntry {
+
+        private final MongoClient mongoClient;
+        private int references;
+
+        public MongodbClientEntry(MongoClient mongoClient) {
+            this.mongoClient = mongoClient;
+        }
+
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(MongodbClients.class);
+
+    private static final Map<String, MongodbClientEntry> clientByUri = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(MongodbClients::closeAll, "MongodbClients-Shutdown"));
+    }
+
+    /**
+     * Get the client for that connection or create it. Every call must be followed by a {@link #release(JdbcUriConfigConnection)}.
+     *
+     * @param configConnection
+     *            the connection
+     * @return the shared client
+     */
+    public static synchronized MongoClient acquire(JdbcUriConfigConnection configConnection) {
+        String uri = normalizeUri(configConnection.getJdbcUri());
+        MongodbClientEntry entry = clientByUri.get(uri);
+        if (entry == null) {
+            logger.info("Creating the client for {}", configConnection);
+            entry = new MongodbClientEntry(MongoClients.create(uri));
+            clientByUri.put(uri, entry);
+        }
+        ++entry.references;
+        return entry.mongoClient;
+    }
+
+    public static void closeAll() {
+        List<MongodbClientEntry> entries;
+        synchronized (MongodbClients.class) {
+            entries = new ArrayList<>(clientByUri.values());
+            clientByUri.clear();
+        }
+        entries.forEach(entry -> entry.mongoClient.close());
+    }
+
+    /**
+     * Remove the "jdbc:" prefix, lowercase the scheme and the hosts and sort the options so that the same cluster always gives the same URI.
+     *
+     * @param jdbcUri
+     *            the URI as written in the config
+     * @return the normalized URI
+     */
+    public static String normalizeUri(String jdbcUri) {
+        String uri = jdbcUri.trim();
+        if (uri.startsWith("jdbc:")) {
+            uri = uri.substring(5);
+        }
+
+        // Split the options
+        String options = null;
+        int optionsPosition = uri.indexOf('?');
+        if (optionsPosition != -1) {
+            options = uri.substring(optionsPosition + 1);
+            uri = uri.substring(0, optionsPosition);
+        }
+
+        // Lowercase the scheme and the hosts, but not the credentials nor the database
+        int schemeEnd = uri.indexOf("://");
+        if (schemeEnd != -1) {
+            int authorityStart = schemeEnd + 3;
+            int hostsEnd = uri.indexOf('/', authorityStart);
+            if (hostsEnd == -1) {
+                hostsEnd = uri.length();
+            }
+            int hostsStart = uri.lastIndexOf('@', hostsEnd - 1) + 1;
+            if (hostsStart < authorityStart) {
+                hostsStart = authorityStart;
+            }
+            uri = uri.substring(0, schemeEnd).toLowerCase() + uri.substring(schemeEnd, hostsStart) + uri.substring(hostsStart, hostsEnd).toLowerCase() + uri.substring(hostsEnd);
+        }
+
+        if (options == null || options.isEmpty()) {
+            return uri;
+        }
+        String[] sortedOptions = options.split("&");
+        Arrays.sort(sortedOptions);
+        return uri + "?" + String.join("&", sortedOptions);
+    }
+
+    /**
+     * Release a client previously acquired. The client is closed when nothing uses it anymore.
+     *
+     * @param configConnection
+     *            the connection
+     */
+    public static void release(JdbcUriConfigConnection configConnection) {
+        String uri = normalizeUri(configConnection.getJdbcUri());
+        MongodbClientEntry entry;
+        synchronized (MongodbClients.class) {
+            entry = clientByUri.get(uri);
+            if (entry == null || --entry.references > 0) {
+                return;
+            }
+            clientByUri.remove(uri);
+        }
+        logger.info("Closing the client for {}", configConnection);
+        entry.mongoClient.close();
+    }
+
+    private MongodbClients() {
+    }
+
+}
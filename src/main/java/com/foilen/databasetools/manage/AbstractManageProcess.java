@@ -0,0 +1,456 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.exception.RetryLaterException;
+import com.foilen.databasetools.manage.plan.BackoffTools;
+import com.foilen.databasetools.metrics.ManageMetrics;
+import com.foilen.databasetools.metrics.PhaseTimer;
+import com.foilen.smalltools.filesystemupdatewatcher.handler.OneFileUpdateNotifyer;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.JsonTools;
+import com.foilen.smalltools.tools.ThreadNameStateTool;
+import com.foilen.smalltools.tools.ThreadTools;
+import com.google.common.hash.Hashing;
+
+/**
+ * A process that keeps a database in line with one config file. It is executed by the {@link ManageScheduler}:
+ * <ul>
+ * <li>right away when started;</li>
+ * <li>when kept alive, every refresh interval (1 hour by default) and right away when the config file changes (or when {@link #trigger()} is called);</li>
+ * <li>later when the execution asked to be retried (with an exponential backoff when it keeps failing).</li>
+ * </ul>
+ * Only one execution of the same process runs at a time. Triggers received during an execution are coalesced into one execution right after. Once the config is loaded, the
+ * config is applied on each of its servers in parallel, each waiting for its server to be under the per-server limit of the scheduler. The servers are isolated: the one that
+ * asks to be retried is the only one fully reconciled again and the one that fails does not stop the others.
+ */
+public abstract class AbstractManageProcess extends AbstractBasics {
+
+    public static final long DEFAULT_REFRESH_INTERVAL_IN_MS = 60 * 60 * 1000;
+
+    private static final long SUCCESS = -1;
+    private static final long FAILED = -2;
+    private static final long MAX_RETRY_DELAY_IN_MS = 5 * 60 * 1000;
+
+    protected final String configFile;
+    protected final boolean keepAlive;
+    protected final boolean planOnly;
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private ManageScheduler scheduler;
+    private String configHash;
+    private long refreshIntervalInMs = DEFAULT_REFRESH_INTERVAL_IN_MS;
+    private boolean watchConfigFile = true;
+    private Closeable configFileNotifyer;
+    private int consecutiveRetries;
+
+    // Guarded by this
+    private ScheduledFuture<?> nextExecution;
+    private long nextExecutionOn;
+    private long nextFullExecutionOn;
+    private boolean fullRequested = true;
+    private final Set<String> retryServers = new HashSet<>();
+    private final Set<String> failedServers = new HashSet<>();
+    private boolean running;
+    private boolean triggeredWhileRunning;
+    private boolean stopAfterRunning;
+
+    public AbstractManageProcess(String configFile, boolean keepAlive, boolean planOnly) {
+        this.configFile = configFile;
+        this.keepAlive = keepAlive;
+        this.planOnly = planOnly;
+    }
+
+    /**
+     * End the process (e.g. when its config file got removed). An execution in progress is completed first.
+     */
+    public synchronized void end() {
+        if (!completion.complete(null)) {
+            return;
+        }
+        if (nextExecution != null) {
+            nextExecution.cancel(false);
+            nextExecution = null;
+        }
+        if (running) {
+            stopAfterRunning = true;
+        } else {
+            stop();
+        }
+    }
+
+    /**
+     * Reconcile one server with the config file. The servers of the same config are executed in parallel.
+     *
+     * @param connection
+     *            the connection to the server
+     * @param full
+     *            true to reconcile everything (first execution, retries and every refresh interval) ; false when {@link #trigger()} asked for an execution and only what changed
+     *            needs to be reconciled
+     */
+    protected abstract void execute(JdbcUriConfigConnection connection, boolean full);
+
+    private void executeNow() {
+
+        boolean full;
+        Set<String> retryServers;
+        synchronized (this) {
+            nextExecution = null;
+            running = true;
+            triggeredWhileRunning = false;
+            full = fullRequested || System.currentTimeMillis() >= nextFullExecutionOn;
+            fullRequested = false;
+            retryServers = new HashSet<>(this.retryServers);
+            this.retryServers.clear();
+        }
+
+        // Load the config to know which servers it targets
+        AtomicReference<List<JdbcUriConfigConnection>> connectionsReference = new AtomicReference<>();
+        PhaseTimer loadTimer = PhaseTimer.start(getDatabaseType(), configFile, null, ManageMetrics.PHASE_LOAD_CONFIG);
+        long loadResult = runStep(null, () -> connectionsReference.set(loadConfig()));
+        loadTimer.stop();
+        if (loadResult != SUCCESS || completion.isDone()) {
+            synchronized (this) {
+                if (loadResult != FAILED) {
+                    fullRequested |= full;
+                    this.retryServers.addAll(retryServers);
+                }
+            }
+            finishExecution(full, loadResult == FAILED, loadResult == FAILED ? SUCCESS : loadResult);
+            return;
+        }
+        List<JdbcUriConfigConnection> connections;
+        synchronized (this) {
+            connections = connectionsReference.get().stream() //
+                    .filter(connection -> !failedServers.contains(connection.getServer())) //
+                    .collect(Collectors.toList());
+        }
+        if (connections.isEmpty()) {
+            finishExecution(full, false, SUCCESS);
+            return;
+        }
+
+        // Apply on all the servers in parallel, each waiting for its server to have a free slot
+        AtomicLong retryInMs = new AtomicLong(Long.MAX_VALUE);
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger remaining = new AtomicInteger(connections.size());
+        for (JdbcUriConfigConnection connection : connections) {
+            String server = connection.getServer();
+            boolean serverFull = full || retryServers.contains(server);
+            scheduler.executeForServer(server, () -> {
+                long result = runStep(server, () -> execute(connection, serverFull));
+                if (result == SUCCESS) {
+                    ManageMetrics.setLastSuccess(getDatabaseType(), configFile, server);
+                } else if (result == FAILED) {
+                    failed.set(true);
+                    if (!keepAlive) {
+                        synchronized (this) {
+                            failedServers.add(server);
+                        }
+                    }
+                } else if (result != SUCCESS) {
+                    retryInMs.accumulateAndGet(result, Math::min);
+                    synchronized (this) {
+                        this.retryServers.add(server);
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    finishExecution(full, failed.get(), retryInMs.get() == Long.MAX_VALUE ? SUCCESS : retryInMs.get());
+                }
+            });
+        }
+
+    }
+
+    /**
+     * Schedule what is next once all the servers are done.
+     *
+     * @param full
+     *            true if the execution was a full one
+     * @param failed
+     *            true if any server failed without asking to be retried
+     * @param retryInMs
+     *            how long the servers that asked to be retried want to wait or {@link #SUCCESS} when none asked
+     */
+    private synchronized void finishExecution(boolean full, boolean failed, long retryInMs) {
+        running = false;
+        if (stopAfterRunning) {
+            stopAfterRunning = false;
+            stop();
+            return;
+        }
+
+        // Plan the next full execution
+        if (full) {
+            nextFullExecutionOn = System.currentTimeMillis() + scheduler.addJitter(refreshIntervalInMs);
+        }
+
+        // Retry the servers that asked for it
+        if (retryInMs != SUCCESS) {
+            long delayInMs = BackoffTools.computeDelayInMs(retryInMs, consecutiveRetries++, MAX_RETRY_DELAY_IN_MS);
+            logger.warn("Will retry {} in {} ms", retryServers.isEmpty() ? "all the servers" : retryServers, delayInMs);
+            ManageMetrics.incrementRetries(getDatabaseType(), configFile);
+            scheduleExecution(delayInMs);
+            return;
+        }
+        consecutiveRetries = 0;
+
+        // End when not kept alive
+        if (!keepAlive) {
+            boolean ended;
+            if (failed || !failedServers.isEmpty()) {
+                logger.error("Failed servers: {}", failedServers);
+                ended = completion.completeExceptionally(new ProblemException("Killing the process"));
+            } else {
+                ended = completion.complete(null);
+            }
+            if (ended) {
+                stop();
+            }
+            return;
+        }
+
+        if (triggeredWhileRunning) {
+            scheduleExecution(0);
+        } else {
+            long waitFor = nextFullExecutionOn - System.currentTimeMillis();
+            logger.info("Wait for {}ms before the next execution", waitFor);
+            scheduleExecution(waitFor);
+        }
+    }
+
+    /**
+     * The hash of the content of the config file the last time {@link #readConfigFile(Class)} was called.
+     *
+     * @return the hash
+     */
+    protected String getConfigHash() {
+        return configHash;
+    }
+
+    /**
+     * The type of database for the thread names.
+     *
+     * @return the type
+     */
+    protected abstract String getDatabaseType();
+
+    protected ManageScheduler getScheduler() {
+        return scheduler;
+    }
+
+    protected synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Load the config file. Called before each execution.
+     *
+     * @return the connections to the servers that the execution will reconcile
+     */
+    protected abstract List<JdbcUriConfigConnection> loadConfig();
+
+    /**
+     * Read the config file and keep the hash of its content.
+     *
+     * @param configType
+     *            the type of config
+     * @param <C>
+     *            the type of config
+     * @return the config
+     */
+    protected <C> C readConfigFile(Class<C> configType) {
+        logger.info("Loading config file {}", configFile);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(Paths.get(configFile));
+        } catch (IOException e) {
+            throw new ProblemException("Could not read the config file " + configFile, e);
+        }
+        configHash = Hashing.sha256().hashBytes(content).toString();
+        return JsonTools.readFromString(new String(content, StandardCharsets.UTF_8), configType);
+    }
+
+    /**
+     * Run a step of the execution in a named thread.
+     *
+     * @param server
+     *            the server the step is for or null when it is for the whole config
+     * @param step
+     *            the step
+     * @return {@link #SUCCESS}, {@link #FAILED} or how long to wait before retrying
+     */
+    private long runStep(String server, Runnable step) {
+        ThreadNameStateTool threadNameStateTool = ThreadTools.nameThread() //
+                .clear() //
+                .setSeparator("-") //
+                .appendText("Manage") //
+                .appendText(getDatabaseType()) //
+                .appendText(configFile);
+        if (server != null) {
+            threadNameStateTool.appendText(server);
+        }
+        threadNameStateTool.change();
+        try {
+            step.run();
+            return SUCCESS;
+        } catch (RetryLaterException e) {
+            logger.warn("Problem managing: {}", e.getMessage());
+            return Math.max(0, e.getRetryInMs());
+        } catch (Exception e) {
+            logger.error("Problem managing", e);
+            return FAILED;
+        } finally {
+            threadNameStateTool.revert();
+        }
+    }
+
+    private synchronized void scheduleExecution(long delayInMs) {
+        if (completion.isDone()) {
+            return;
+        }
+        if (running) {
+            triggeredWhileRunning = true;
+            return;
+        }
+
+        // Keep the earliest
+        long executionOn = System.currentTimeMillis() + Math.max(0, delayInMs);
+        if (nextExecution != null) {
+            if (nextExecutionOn <= executionOn) {
+                return;
+            }
+            nextExecution.cancel(false);
+        }
+        nextExecutionOn = executionOn;
+        nextExecution = scheduler.schedule(this::executeNow, delayInMs);
+    }
+
+    /**
+     * Change how long to wait between the full executions when kept alive. Usually taken from the config file at each execution.
+     *
+     * @param refreshIntervalInMs
+     *            the interval or null to use {@link #DEFAULT_REFRESH_INTERVAL_IN_MS}
+     */
+    protected void setRefreshIntervalInMs(Long refreshIntervalInMs) {
+        this.refreshIntervalInMs = refreshIntervalInMs == null ? DEFAULT_REFRESH_INTERVAL_IN_MS : refreshIntervalInMs;
+    }
+
+    /**
+     * Set to false when something else is watching the config file and will call {@link #trigger()} and {@link #end()}.
+     *
+     * @param watchConfigFile
+     *            true (default) to watch the config file when kept alive
+     */
+    public void setWatchConfigFile(boolean watchConfigFile) {
+        this.watchConfigFile = watchConfigFile;
+    }
+
+    /**
+     * Start the process on the scheduler.
+     *
+     * @param scheduler
+     *            the scheduler
+     * @return completes when the process ends (never when kept alive)
+     */
+    public CompletableFuture<Void> start(ManageScheduler scheduler) {
+        this.scheduler = scheduler;
+
+        // Check the config file changes when kept alive
+        if (keepAlive && watchConfigFile) {
+            logger.info("Start the file notifyer");
+            File config = new File(configFile);
+            OneFileUpdateNotifyer oneFileUpdateNotifyer = new OneFileUpdateNotifyer(config.getAbsolutePath(), fileName -> {
+                logger.info("Config file changed. Update now");
+                trigger();
+            });
+            oneFileUpdateNotifyer.initAutoUpdateSystem();
+            configFileNotifyer = oneFileUpdateNotifyer;
+        }
+
+        scheduleExecution(0);
+        return completion;
+    }
+
+    /**
+     * Called once when the process ends to release its resources.
+     */
+    protected void stop() {
+        logger.info("End of manager");
+        if (configFileNotifyer != null) {
+            try {
+                configFileNotifyer.close();
+            } catch (IOException e) {
+                logger.warn("Problem stopping the file notifyer", e);
+            }
+            configFileNotifyer = null;
+        }
+    }
+
+    /**
+     * Get all the servers a config file targets.
+     *
+     * @param connection
+     *            the single connection of the config (ignored when its jdbcUri is not set)
+     * @param connections
+     *            the other connections of the config (can be null)
+     * @return all the connections
+     */
+    protected static List<JdbcUriConfigConnection> toConnections(JdbcUriConfigConnection connection, List<JdbcUriConfigConnection> connections) {
+        List<JdbcUriConfigConnection> allConnections = new ArrayList<>();
+        if (connection != null && connection.getJdbcUri() != null) {
+            allConnections.add(connection);
+        }
+        if (connections != null) {
+            allConnections.addAll(connections);
+        }
+        if (allConnections.isEmpty()) {
+            throw new ProblemException("There is no connection in the config");
+        }
+
+        // The state is kept per server
+        Set<String> servers = new HashSet<>();
+        for (JdbcUriConfigConnection nextConnection : allConnections) {
+            if (!servers.add(nextConnection.getServer())) {
+                throw new ProblemException("The server " + nextConnection.getServer() + " is in the config more than once");
+            }
+        }
+        return allConnections;
+    }
+
+    /**
+     * Execute as soon as possible, but without forcing a full execution (e.g. the config file changed).
+     */
+    public synchronized void trigger() {
+        scheduleExecution(0);
+    }
+
+}
@@ -14,6 +14,9 @@ import java.util.List;
 
 import org.kohsuke.args4j.Option;
 
+import com.foilen.databasetools.metrics.StatementTimings;
+import com.foilen.databasetools.queries.SnapshotCache;
+
 /**
  * The arguments to pass to the application.
  */
@@ -22,17 +25,105 @@ public class CommonManageOptions {
     @Option(name = "--keepAlive", usage = "Keep the manager alive and update when the file is updated", required = false)
     private boolean keepAlive = false;
 
+    @Option(name = "--planOnly", usage = "Only log the changes that would be applied and how long it took to find them", required = false)
+    private boolean planOnly = false;
+
+    @Option(name = "--maxWorkers", usage = "The maximum amount of config files processed at the same time (default: the amount of CPUs)", required = false)
+    private int maxWorkers = Runtime.getRuntime().availableProcessors();
+
+    @Option(name = "--maxWorkersPerServer", usage = "The maximum amount of config files processed at the same time on the same server (default: 1)", required = false)
+    private int maxWorkersPerServer = 1;
+
+    @Option(name = "--snapshotCacheTtlInMs", usage = "How long the reads of a server are shared by the config files targeting the same server (default: 10000 ; 0 to disable)", required = false)
+    private long snapshotCacheTtlInMs = SnapshotCache.DEFAULT_TTL_IN_MS;
+
+    @Option(name = "--slowStatementThresholdInMs", usage = "The statements and commands taking longer are logged as slow (default: 1000)", required = false)
+    private long slowStatementThresholdInMs = StatementTimings.DEFAULT_SLOW_THRESHOLD_IN_MS;
+
     @Option(name = "--configFiles", usage = "The config files of the different databases to manage")
     private List<String> configFiles = new ArrayList<String>();
 
+    @Option(name = "--configDir", usage = "A directory with the config files (*.json) of the different databases to manage. When kept alive, the added and removed files are picked up", required = false)
+    private String configDir;
+
+    @Option(name = "--metricsPort", usage = "The port to serve the Prometheus metrics on \"/metrics\" (default: not served)", required = false)
+    private Integer metricsPort;
+
+    @Option(name = "--shardIndex", usage = "The index of this instance (starting at 0) when the config files are shared between --shardCount instances", required = false, depends = "--shardCount")
+    private Integer shardIndex;
+
+    @Option(name = "--shardCount", usage = "The amount of instances sharing the config files", required = false, depends = "--shardIndex", forbids = "--shardDir")
+    private Integer shardCount;
+
+    @Option(name = "--shardDir", usage = "A directory shared by the instances sharing the config files. Each instance keeps a lock file in it and the config files are rebalanced when instances join or leave", required = false)
+    private String shardDir;
+
+    @Option(name = "--shardId", usage = "The id of this instance in the --shardDir (default: the hostname)", required = false, depends = "--shardDir")
+    private String shardId;
+
+    @Option(name = "--shardHeartbeatInMs", usage = "How often the lock file in the --shardDir is touched. An instance that missed 3 heartbeats is considered gone (default: 10000)", required = false)
+    private long shardHeartbeatInMs = 10000;
+
+    public String getConfigDir() {
+        return configDir;
+    }
+
     public List<String> getConfigFiles() {
         return configFiles;
     }
 
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public int getMaxWorkersPerServer() {
+        return maxWorkersPerServer;
+    }
+
+    public Integer getMetricsPort() {
+        return metricsPort;
+    }
+
+    public Integer getShardCount() {
+        return shardCount;
+    }
+
+    public String getShardDir() {
+        return shardDir;
+    }
+
+    public long getShardHeartbeatInMs() {
+        return shardHeartbeatInMs;
+    }
+
+    public String getShardId() {
+        return shardId;
+    }
+
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    public long getSlowStatementThresholdInMs() {
+        return slowStatementThresholdInMs;
+    }
+
+    public long getSnapshotCacheTtlInMs() {
+        return snapshotCacheTtlInMs;
+    }
+
     public boolean isKeepAlive() {
         return keepAlive;
     }
 
+    public boolean isPlanOnly() {
+        return planOnly;
+    }
+
+    public void setConfigDir(String configDir) {
+        this.configDir = configDir;
+    }
+
     public void setConfigFiles(List<String> configFiles) {
         this.configFiles = configFiles;
     }
@@ -41,4 +132,48 @@ public class CommonManageOptions {
         this.keepAlive = keepAlive;
     }
 
+    public void setMaxWorkers(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+    }
+
+    public void setMaxWorkersPerServer(int maxWorkersPerServer) {
+        this.maxWorkersPerServer = maxWorkersPerServer;
+    }
+
+    public void setMetricsPort(Integer metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public void setPlanOnly(boolean planOnly) {
+        this.planOnly = planOnly;
+    }
+
+    public void setShardCount(Integer shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public void setShardDir(String shardDir) {
+        this.shardDir = shardDir;
+    }
+
+    public void setShardHeartbeatInMs(long shardHeartbeatInMs) {
+        this.shardHeartbeatInMs = shardHeartbeatInMs;
+    }
+
+    public void setShardId(String shardId) {
+        this.shardId = shardId;
+    }
+
+    public void setShardIndex(Integer shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public void setSlowStatementThresholdInMs(long slowStatementThresholdInMs) {
+        this.slowStatementThresholdInMs = slowStatementThresholdInMs;
+    }
+
+    public void setSnapshotCacheTtlInMs(long snapshotCacheTtlInMs) {
+        this.snapshotCacheTtlInMs = snapshotCacheTtlInMs;
+    }
+
 }
@@ -0,0 +1,105 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.foilen.smalltools.tools.JsonTools;
+
+/**
+ * To find what changed between the last applied config and the new one.
+ */
+public final class ConfigDeltaTools {
+
+    /**
+     * Get the keys of the items that were added, removed or modified.
+     *
+     * @param previous
+     *            the items of the previous config
+     * @param next
+     *            the items of the new config
+     * @param keyFunction
+     *            how to get the key of an item
+     * @param <T>
+     *            the type of items
+     * @return the changed keys or null if everything must be reconciled (one of the lists is null and not the other)
+     */
+    public static <T> Set<String> changedKeys(List<T> previous, List<T> next, Function<T, String> keyFunction) {
+        if (previous == null || next == null) {
+            return previous == next ? new TreeSet<>() : null;
+        }
+
+        Map<String, String> previousJsonByKey = toJsonByKey(previous, keyFunction);
+        Map<String, String> nextJsonByKey = toJsonByKey(next, keyFunction);
+
+        Set<String> changedKeys = new TreeSet<>();
+        previousJsonByKey.forEach((key, json) -> {
+            if (!json.equals(nextJsonByKey.get(key))) {
+                changedKeys.add(key);
+            }
+        });
+        nextJsonByKey.keySet().stream() //
+                .filter(key -> !previousJsonByKey.containsKey(key)) //
+                .forEach(changedKeys::add);
+        return changedKeys;
+    }
+
+    /**
+     * Keep the items with the keys.
+     *
+     * @param items
+     *            the items (can be null)
+     * @param keys
+     *            the keys to keep
+     * @param keyFunction
+     *            how to get the key of an item
+     * @param <T>
+     *            the type of items
+     * @return the kept items or null if items is null
+     */
+    public static <T> List<T> filterByKeys(List<T> items, Set<String> keys, Function<T, String> keyFunction) {
+        if (items == null) {
+            return null;
+        }
+        return items.stream() //
+                .filter(item -> keys.contains(keyFunction.apply(item))) //
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tell if both values have the same JSON.
+     *
+     * @param previous
+     *            the previous value
+     * @param next
+     *            the new value
+     * @return true if the same
+     */
+    public static boolean isSame(Object previous, Object next) {
+        return Objects.equals(JsonTools.compactPrint(previous), JsonTools.compactPrint(next));
+    }
+
+    private static <T> Map<String, String> toJsonByKey(List<T> items, Function<T, String> keyFunction) {
+        Map<String, String> jsonByKey = new HashMap<>();
+        items.forEach(item -> jsonByKey.put(keyFunction.apply(item), JsonTools.compactPrint(item)));
+        return jsonByKey;
+    }
+
+    private ConfigDeltaTools() {
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * Watch all the config files in a directory with a single {@link WatchService}. The events on the same file are coalesced: the file is only dispatched once it stopped changing
+ * for a second, as changed if it exists or as removed if it does not.
+ */
+public class ConfigDirWatcher extends AbstractBasics implements Closeable {
+
+    private static final long COALESCE_DELAY_IN_MS = 1000;
+
+    private final Path configDir;
+    private final ManageScheduler scheduler;
+    private final Consumer<File> onChanged;
+    private final Consumer<File> onRemoved;
+
+    // Guarded by pendingByFile
+    private final Map<Path, ScheduledFuture<?>> pendingByFile = new HashMap<>();
+    private final Set<Path> knownFiles = new HashSet<>();
+
+    private WatchService watchService;
+
+    public ConfigDirWatcher(String configDir, ManageScheduler scheduler, Consumer<File> onChanged, Consumer<File> onRemoved) {
+        this.configDir = new File(configDir).getAbsoluteFile().toPath();
+        this.scheduler = scheduler;
+        this.onChanged = onChanged;
+        this.onRemoved = onRemoved;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Problem closing the watch service", e);
+        }
+    }
+
+    private void dispatch(Path file) {
+        synchronized (pendingByFile) {
+            ScheduledFuture<?> pending = pendingByFile.get(file);
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            pendingByFile.put(file, scheduler.schedule(() -> dispatchNow(file), COALESCE_DELAY_IN_MS));
+        }
+    }
+
+    private void dispatchNow(Path file) {
+        boolean exists = Files.isRegularFile(file);
+        synchronized (pendingByFile) {
+            pendingByFile.remove(file);
+            if (exists) {
+                knownFiles.add(file);
+            } else if (!knownFiles.remove(file)) {
+                return;
+            }
+        }
+
+        if (exists) {
+            onChanged.accept(file.toFile());
+        } else {
+            onRemoved.accept(file.toFile());
+        }
+    }
+
+    private static boolean isConfigFile(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.endsWith(".json") && !fileName.startsWith(".");
+    }
+
+    /**
+     * List the config files (the "*.json" files that are not hidden) in a directory.
+     *
+     * @param configDir
+     *            the directory
+     * @return the config files
+     */
+    public static List<Path> listConfigFiles(Path configDir) {
+        try (Stream<Path> list = Files.list(configDir)) {
+            return list.filter(ConfigDirWatcher::isConfigFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ProblemException("Could not list the config directory " + configDir, e);
+        }
+    }
+
+    /**
+     * Dispatch all the config files currently in the directory and the known ones that disappeared.
+     */
+    private void rescan() {
+        Set<Path> files;
+        synchronized (pendingByFile) {
+            files = new HashSet<>(knownFiles);
+        }
+        files.addAll(listConfigFiles(configDir));
+        files.forEach(this::dispatch);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                try {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            logger.warn("Missed some events in {}. Rescanning", configDir);
+                            rescan();
+                            continue;
+                        }
+                        Path file = configDir.resolve((Path) event.context());
+                        if (isConfigFile(file)) {
+                            dispatch(file);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Problem processing the events in {}. Continuing to watch", configDir, e);
+                }
+                if (!key.reset()) {
+                    logger.error("The config directory {} cannot be watched anymore (e.g. it was removed). Stop watching", configDir);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.info("Stop watching {}", configDir);
+        }
+    }
+
+    /**
+     * Start watching and dispatch all the config files already in the directory.
+     */
+    public void start() {
+        logger.info("Watching the config directory {}", configDir);
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            configDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new ProblemException("Could not watch the config directory " + configDir, e);
+        }
+
+        Thread thread = new Thread(this::run, "ConfigDirWatcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        rescan();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.google.common.base.Strings;
+
+public class GenerateManageConfigCommand extends AbstractBasics implements Command<GenerateManageConfigOptions> {
+
+    private static void checkMinimum(String optionName, int value, int minimum) {
+        if (value < minimum) {
+            throw new ProblemException("The " + optionName + " must be at least " + minimum + ". Got " + value);
+        }
+    }
+
+    private static void checkPercent(String optionName, int percent) {
+        if (percent < 0 || percent > 100) {
+            throw new ProblemException("The " + optionName + " must be between 0 and 100. Got " + percent);
+        }
+    }
+
+    @Override
+    public void execute(GenerateManageConfigOptions options) {
+        validate(options);
+        ManageConfigGenerator generator = new ManageConfigGenerator(options);
+        try {
+            if (Strings.isNullOrEmpty(options.getOutputFile())) {
+                generator.generate(System.out);
+                System.out.println();
+                System.out.flush();
+            } else {
+                logger.info("Output config to {}", options.getOutputFile());
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(options.getOutputFile()))) {
+                    generator.generate(out);
+                }
+            }
+        } catch (IOException e) {
+            throw new ProblemException("Could not write the config", e);
+        }
+        logger.info("Generated {} users", generator.getGeneratedUsers());
+    }
+
+    @Override
+    public String getCommandName() {
+        return "generate-manage-config";
+    }
+
+    @Override
+    public GenerateManageConfigOptions newOptions() {
+        return new GenerateManageConfigOptions();
+    }
+
+    /**
+     * Check the options before generating anything.
+     *
+     * @param options
+     *            the options
+     */
+    protected static void validate(GenerateManageConfigOptions options) {
+        checkMinimum("--databases", options.getDatabases(), 1);
+        checkMinimum("--users", options.getUsers(), 0);
+        checkMinimum("--rolesPerDatabase", options.getRolesPerDatabase(), 0);
+        checkMinimum("--privilegesPerUser", options.getPrivilegesPerUser(), 0);
+        checkMinimum("--generation", options.getGeneration(), 0);
+        checkPercent("--addedPercent", options.getAddedPercent());
+        checkPercent("--removedPercent", options.getRemovedPercent());
+        checkPercent("--modifiedPercent", options.getModifiedPercent());
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * The arguments to pass to the application.
+ */
+public class GenerateManageConfigOptions {
+
+    @Option(name = "--databaseType", usage = "The type of config to generate: mariadb or mongodb", required = true)
+    private String databaseType;
+    @Option(name = "--outputFile", usage = "The file where to store the configuration (default: output to shell)", required = false)
+    private String outputFile;
+    @Option(name = "--jdbcUri", usage = "The connection to put in the configuration (default: a local server)", required = false)
+    private String jdbcUri;
+
+    @Option(name = "--databases", usage = "The amount of databases (default: 10)", required = false)
+    private int databases = 10;
+    @Option(name = "--users", usage = "The amount of users in the first generation (default: 1000)", required = false)
+    private int users = 1000;
+    @Option(name = "--rolesPerDatabase", usage = "MongoDB: the amount of roles in each database (default: 5)", required = false)
+    private int rolesPerDatabase = 5;
+    @Option(name = "--privilegesPerUser", usage = "The amount of databases each user has grants on (MariaDB) or roles from (MongoDB) (default: 2)", required = false)
+    private int privilegesPerUser = 2;
+
+    @Option(name = "--seed", usage = "The same seed and options always generate the same configuration (default: 1)", required = false)
+    private long seed = 1;
+    @Option(name = "--generation", usage = "Which generation to output. Each generation after the first one (0) adds, removes and modifies some users (default: 0)", required = false)
+    private int generation = 0;
+    @Option(name = "--addedPercent", usage = "The percent of --users added in each generation (default: 5)", required = false)
+    private int addedPercent = 5;
+    @Option(name = "--removedPercent", usage = "The percent of the users removed in each generation (default: 5)", required = false)
+    private int removedPercent = 5;
+    @Option(name = "--modifiedPercent", usage = "The percent of the users with a different password and privileges in each generation (default: 10)", required = false)
+    private int modifiedPercent = 10;
+
+    public int getAddedPercent() {
+        return addedPercent;
+    }
+
+    public String getDatabaseType() {
+        return databaseType;
+    }
+
+    public int getDatabases() {
+        return databases;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public String getJdbcUri() {
+        return jdbcUri;
+    }
+
+    public int getModifiedPercent() {
+        return modifiedPercent;
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    public int getPrivilegesPerUser() {
+        return privilegesPerUser;
+    }
+
+    public int getRemovedPercent() {
+        return removedPercent;
+    }
+
+    public int getRolesPerDatabase() {
+        return rolesPerDatabase;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setAddedPercent(int addedPercent) {
+        this.addedPercent = addedPercent;
+    }
+
+    public void setDatabaseType(String databaseType) {
+        this.databaseType = databaseType;
+    }
+
+    public void setDatabases(int databases) {
+        this.databases = databases;
+    }
+
+    public void setGeneration(int generation) {
+        this.generation = generation;
+    }
+
+    public void setJdbcUri(String jdbcUri) {
+        this.jdbcUri = jdbcUri;
+    }
+
+    public void setModifiedPercent(int modifiedPercent) {
+        this.modifiedPercent = modifiedPercent;
+    }
+
+    public void setOutputFile(String outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    public void setPrivilegesPerUser(int privilegesPerUser) {
+        this.privilegesPerUser = privilegesPerUser;
+    }
+
+    public void setRemovedPercent(int removedPercent) {
+        this.removedPercent = removedPercent;
+    }
+
+    public void setRolesPerDatabase(int rolesPerDatabase) {
+        this.rolesPerDatabase = rolesPerDatabase;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.shard.ConsistentHashRing;
+import com.foilen.databasetools.manage.shard.ShardDirMembership;
+import com.foilen.databasetools.metrics.ManageMetrics;
+import com.foilen.databasetools.metrics.MetricsHttpServer;
+import com.foilen.databasetools.metrics.StatementTimings;
+import com.foilen.databasetools.queries.SnapshotCache;
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * Start the manage processes of all the config files given with "--configFiles" and "--configDir". When kept alive, the config directory is watched to start the processes of new
+ * files, trigger the ones of changed files and end the ones of removed files.
+ *
+ * When sharded, only the config files that this instance owns on the {@link ConsistentHashRing} of all the instances are managed. With "--shardDir", the config files are
+ * rebalanced when instances join or leave.
+ */
+public class ManageProcessesRunner extends AbstractBasics implements Closeable {
+
+    private final CommonManageOptions options;
+    private final Function<String, AbstractManageProcess> processFactory;
+    private final ManageScheduler scheduler;
+
+    private MetricsHttpServer metricsHttpServer;
+    private ConfigDirWatcher configDirWatcher;
+
+    // Guarded by this
+    private final Set<String> configFiles = new LinkedHashSet<>();
+    private final Set<String> configDirFiles = new LinkedHashSet<>();
+    private final Map<String, AbstractManageProcess> processByConfigFile = new HashMap<>();
+    private ConsistentHashRing ring;
+    private String shardId;
+
+    public ManageProcessesRunner(CommonManageOptions options, Function<String, AbstractManageProcess> processFactory) {
+        this.options = options;
+        this.processFactory = processFactory;
+        this.scheduler = new ManageScheduler(options.getMaxWorkers(), options.getMaxWorkersPerServer());
+        SnapshotCache.setTtlInMs(options.getSnapshotCacheTtlInMs());
+        StatementTimings.setSlowThresholdInMs(options.getSlowStatementThresholdInMs());
+    }
+
+    /**
+     * Stop serving the metrics, stop watching the config directory and stop the scheduler. To call once all the processes ended.
+     */
+    @Override
+    public void close() {
+        if (metricsHttpServer != null) {
+            metricsHttpServer.close();
+            metricsHttpServer = null;
+        }
+        if (configDirWatcher != null) {
+            configDirWatcher.close();
+            configDirWatcher = null;
+        }
+        scheduler.shutdown();
+    }
+
+    private synchronized void configDirFileChanged(File file) {
+        String configFile = file.getAbsolutePath();
+        configDirFiles.add(configFile);
+        AbstractManageProcess process = processByConfigFile.get(configFile);
+        if (process == null) {
+            if (isOwned(configFile)) {
+                logger.info("New config file {}. Start managing it", configFile);
+                startProcess(configFile, false);
+            }
+        } else {
+            logger.info("Config file {} changed. Update now", configFile);
+            process.trigger();
+        }
+    }
+
+    private synchronized void configDirFileRemoved(File file) {
+        String configFile = file.getAbsolutePath();
+        configDirFiles.remove(configFile);
+        AbstractManageProcess process = processByConfigFile.remove(configFile);
+        if (process != null) {
+            logger.info("Config file {} removed. Stop managing it", configFile);
+            process.end();
+        }
+    }
+
+    private static String getHostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    private boolean isOwned(String configFile) {
+        if (shardId == null) {
+            return true;
+        }
+        return ring != null && shardId.equals(ring.getOwner(configFile));
+    }
+
+    /**
+     * Start the processes of the config files this instance now owns and end the ones it does not own anymore.
+     *
+     * @param ring
+     *            the new ring or null when the members are not known anymore (owns nothing)
+     */
+    private synchronized void rebalance(ConsistentHashRing ring) {
+        this.ring = ring;
+        if (!options.isKeepAlive()) {
+            return;
+        }
+
+        processByConfigFile.entrySet().removeIf(entry -> {
+            if (isOwned(entry.getKey())) {
+                return false;
+            }
+            logger.info("Config file {} is now owned by {}. Stop managing it", entry.getKey(), ring == null ? "nobody" : ring.getOwner(entry.getKey()));
+            entry.getValue().end();
+            return true;
+        });
+        configFiles.forEach(configFile -> {
+            if (isOwned(configFile) && !processByConfigFile.containsKey(configFile)) {
+                logger.info("Config file {} is now owned by this instance. Start managing it", configFile);
+                startProcess(configFile, true);
+            }
+        });
+        configDirFiles.forEach(configFile -> {
+            if (isOwned(configFile) && !processByConfigFile.containsKey(configFile)) {
+                logger.info("Config file {} is now owned by this instance. Start managing it", configFile);
+                startProcess(configFile, false);
+            }
+        });
+    }
+
+    /**
+     * Start all the processes.
+     *
+     * @return the futures to wait on. They never all complete when kept alive
+     */
+    public List<Future<?>> start() {
+
+        // The metrics
+        if (options.getMetricsPort() != null) {
+            ManageMetrics.setQueueDepthSupplier(scheduler::getQueueDepth);
+            metricsHttpServer = new MetricsHttpServer(options.getMetricsPort()).start();
+        }
+
+        // The sharding
+        if (options.getShardCount() != null) {
+            int shardCount = options.getShardCount();
+            int shardIndex = options.getShardIndex();
+            if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+                throw new ProblemException("The --shardIndex must be between 0 and " + (shardCount - 1));
+            }
+            synchronized (this) {
+                shardId = String.valueOf(shardIndex);
+                ring = new ConsistentHashRing(IntStream.range(0, shardCount).mapToObj(String::valueOf).collect(Collectors.toList()));
+            }
+            logger.info("Managing the config files of the shard {} of {}", shardIndex, shardCount);
+        } else if (options.getShardDir() != null) {
+            String instanceId = options.getShardId() == null ? getHostname() : options.getShardId();
+            ShardDirMembership membership = new ShardDirMembership(options.getShardDir(), instanceId, scheduler, options.getShardHeartbeatInMs(), this::rebalance);
+            synchronized (this) {
+                shardId = membership.getInstanceId();
+            }
+            membership.start();
+        }
+
+        // The config files
+        List<String> configFiles = new ArrayList<>(options.getConfigFiles());
+        if (options.getConfigDir() != null && !options.isKeepAlive()) {
+            ConfigDirWatcher.listConfigFiles(new File(options.getConfigDir()).toPath()).forEach(file -> configFiles.add(file.toString()));
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        synchronized (this) {
+            this.configFiles.addAll(configFiles);
+            configFiles.forEach(configFile -> {
+                if (isOwned(configFile)) {
+                    futures.add(startProcess(configFile, true));
+                } else {
+                    logger.info("Config file {} is owned by {}. Skipping", configFile, ring == null ? "nobody" : ring.getOwner(configFile));
+                }
+            });
+        }
+
+        // Watch the config directory
+        if (options.getConfigDir() != null && options.isKeepAlive()) {
+            configDirWatcher = new ConfigDirWatcher(options.getConfigDir(), scheduler, this::configDirFileChanged, this::configDirFileRemoved);
+            configDirWatcher.start();
+        }
+
+        // The processes come and go
+        if (options.isKeepAlive() && (options.getConfigDir() != null || options.getShardDir() != null)) {
+            futures.add(new CompletableFuture<Void>());
+        }
+
+        return futures;
+    }
+
+    private CompletableFuture<Void> startProcess(String configFile, boolean watchConfigFile) {
+        AbstractManageProcess process = processFactory.apply(configFile);
+        process.setWatchConfigFile(watchConfigFile);
+        processByConfigFile.put(configFile, process);
+        return process.start(scheduler);
+    }
+
+}
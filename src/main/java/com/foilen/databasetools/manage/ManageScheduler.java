@@ -0,0 +1,149 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * The scheduler shared by all the manage processes. The processes do not hold any thread while waiting; they are only using one of the few threads of this scheduler while executing.
+ * The work on a server is also limited by {@link #executeForServer(String, Runnable)} and served in the order it was requested.
+ */
+public class ManageScheduler extends AbstractBasics {
+
+    private static class ServerQueue {
+
+        private int running;
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final int maxWorkersPerServer;
+
+    private final Map<String, ServerQueue> queueByServer = new HashMap<>();
+
+    /**
+     * Create the scheduler.
+     *
+     * @param threads
+     *            the maximum amount of processes that can execute at the same time
+     * @param maxWorkersPerServer
+     *            the maximum amount of processes that can execute at the same time on the same server
+     */
+    public ManageScheduler(int threads, int maxWorkersPerServer) {
+        this.maxWorkersPerServer = Math.max(1, maxWorkersPerServer);
+        AtomicInteger nextThreadId = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "ManageScheduler-" + nextThreadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Add a random delay of up to 10% of the interval to spread the executions of the processes that started at the same time.
+     *
+     * @param intervalInMs
+     *            the interval
+     * @return the interval with the jitter
+     */
+    public long addJitter(long intervalInMs) {
+        long maxJitter = intervalInMs / 10;
+        if (maxJitter <= 0) {
+            return intervalInMs;
+        }
+        return intervalInMs + ThreadLocalRandom.current().nextLong(maxJitter);
+    }
+
+    /**
+     * Execute the work as soon as the server has less than the maximum amount of workers. Otherwise, wait after the work that is already waiting for that server.
+     *
+     * @param server
+     *            the server the work is for
+     * @param runnable
+     *            the work
+     */
+    public void executeForServer(String server, Runnable runnable) {
+        synchronized (queueByServer) {
+            ServerQueue serverQueue = queueByServer.computeIfAbsent(server, s -> new ServerQueue());
+            if (serverQueue.running >= maxWorkersPerServer) {
+                logger.info("Server {} is busy. Waiting after {} others", server, serverQueue.waiting.size());
+                serverQueue.waiting.add(runnable);
+                return;
+            }
+            ++serverQueue.running;
+        }
+        executor.execute(() -> runForServer(server, runnable));
+    }
+
+    /**
+     * Get the amount of work that is ready to run, but waiting for a free thread or for its server to have less than the maximum amount of workers.
+     *
+     * @return the amount of work waiting
+     */
+    public int getQueueDepth() {
+        int queueDepth = (int) executor.getQueue().stream() //
+                .filter(runnable -> ((Delayed) runnable).getDelay(TimeUnit.MILLISECONDS) <= 0) //
+                .count();
+        synchronized (queueByServer) {
+            for (ServerQueue serverQueue : queueByServer.values()) {
+                queueDepth += serverQueue.waiting.size();
+            }
+        }
+        return queueDepth;
+    }
+
+    private void runForServer(String server, Runnable runnable) {
+        try {
+            runnable.run();
+        } finally {
+            Runnable next;
+            synchronized (queueByServer) {
+                ServerQueue serverQueue = queueByServer.get(server);
+                next = serverQueue.waiting.poll();
+                if (next == null) {
+                    --serverQueue.running;
+                    if (serverQueue.running == 0) {
+                        queueByServer.remove(server);
+                    }
+                }
+            }
+            if (next != null) {
+                Runnable nextRunnable = next;
+                executor.execute(() -> runForServer(server, nextRunnable));
+            }
+        }
+    }
+
+    public ScheduledFuture<?> schedule(Runnable runnable, long delayInMs) {
+        return executor.schedule(runnable, Math.max(0, delayInMs), TimeUnit.MILLISECONDS);
+    }
+
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable runnable, long delayInMs) {
+        return executor.scheduleWithFixedDelay(runnable, delayInMs, delayInMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -9,13 +9,11 @@
  */
 package com.foilen.databasetools.manage;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
 
 import com.foilen.databasetools.manage.mariadb.MariadbManageProcess;
 import com.foilen.smalltools.tools.AbstractBasics;
-import com.foilen.smalltools.tools.ExecutorsTools;
 
 public class MariadbManageCommand extends AbstractBasics implements Command<CommonManageOptions> {
 
@@ -23,18 +21,17 @@ public class MariadbManageCommand extends AbstractBasics implements Command<Comm
     public void execute(CommonManageOptions options) {
 
         // Start all managers
-        List<Future<?>> futures = new ArrayList<>();
-        options.getConfigFiles().forEach(configFile -> {
-            futures.add(ExecutorsTools.getCachedDaemonThreadPool().submit(new MariadbManageProcess(configFile, options.isKeepAlive())));
-        });
-
-        // Wait for all managers to end
-        futures.forEach(f -> {
-            try {
-                f.get();
-            } catch (Exception e) {
-            }
-        });
+        try (ManageProcessesRunner runner = new ManageProcessesRunner(options, configFile -> new MariadbManageProcess(configFile, options.isKeepAlive(), options.isPlanOnly()))) {
+            List<Future<?>> futures = runner.start();
+
+            // Wait for all managers to end
+            futures.forEach(f -> {
+                try {
+                    f.get();
+                } catch (Exception e) {
+                }
+            });
+        }
     }
 
     @Override
@@ -25,11 +25,12 @@ public class MongodbCreateManageConfigCommand extends AbstractBasics implements
         MongodbManagerConfig config = new MongodbManagerConfig();
         config.setConnection(configConnection);
 
-        MongodbQueries queries = new MongodbQueries(configConnection);
-        config.setDatabases(queries.databasesListNonSystem());
-        config.loadRoles(queries.rolesList());
+        try (MongodbQueries queries = new MongodbQueries(configConnection)) {
+            config.setDatabases(queries.databasesListNonSystem());
+            config.loadRoles(queries.rolesList());
 
-        config.setUsersPermissions(queries.usersList());
+            config.setUsersPermissions(queries.usersList());
+        }
 
         if (Strings.isNullOrEmpty(options.getOutputFile())) {
             System.out.println(JsonTools.prettyPrint(config));
@@ -9,14 +9,12 @@
  */
 package com.foilen.databasetools.manage;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import com.foilen.databasetools.manage.mongodb.MongodbManageProcess;
 import com.foilen.smalltools.tools.AbstractBasics;
-import com.foilen.smalltools.tools.ExecutorsTools;
 
 public class MongodbManageCommand extends AbstractBasics implements Command<CommonManageOptions> {
 
@@ -24,21 +22,20 @@ public class MongodbManageCommand extends AbstractBasics implements Command<Comm
     public void execute(CommonManageOptions options) {
 
         // Start all managers
-        List<Future<?>> futures = new ArrayList<>();
-        options.getConfigFiles().forEach(configFile -> {
-            futures.add(ExecutorsTools.getCachedDaemonThreadPool().submit(new MongodbManageProcess(configFile, options.isKeepAlive())));
-        });
-
-        // Wait for all managers to end
-        futures.forEach(f -> {
-            try {
-                f.get();
-            } catch (ExecutionException e) {
-                System.out.println("FAILURE");
-                System.exit(1);
-            } catch (Exception e) {
-            }
-        });
+        try (ManageProcessesRunner runner = new ManageProcessesRunner(options, configFile -> new MongodbManageProcess(configFile, options.isKeepAlive(), options.isPlanOnly()))) {
+            List<Future<?>> futures = runner.start();
+
+            // Wait for all managers to end
+            futures.forEach(f -> {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    System.out.println("FAILURE");
+                    System.exit(1);
+                } catch (Exception e) {
+                }
+            });
+        }
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.foilen.databasetools.manage.plan.ChangeOperation;
+import com.foilen.smalltools.tools.AbstractBasics;
+
+public class MariadbChangeOperation extends AbstractBasics implements ChangeOperation {
+
+    private MariadbChangeOperationType type;
+    private String database;
+    private String user;
+    private String password;
+    private String hashedPassword;
+    private List<String> privileges;
+
+    public MariadbChangeOperation() {
+    }
+
+    public MariadbChangeOperation(MariadbChangeOperationType type) {
+        this.type = type;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getHashedPassword() {
+        return hashedPassword;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public List<String> getPrivileges() {
+        return privileges;
+    }
+
+    public MariadbChangeOperationType getType() {
+        return type;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public String orderingKey() {
+        return user;
+    }
+
+    @Override
+    public int phase() {
+        return type.getPhase();
+    }
+
+    @Override
+    public boolean retryable() {
+        return type.isRetryable();
+    }
+
+    public MariadbChangeOperation setDatabase(String database) {
+        this.database = database;
+        return this;
+    }
+
+    public MariadbChangeOperation setHashedPassword(String hashedPassword) {
+        this.hashedPassword = hashedPassword;
+        return this;
+    }
+
+    public MariadbChangeOperation setPassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    public MariadbChangeOperation setPrivileges(Collection<String> privileges) {
+        this.privileges = privileges == null ? null : new ArrayList<>(privileges);
+        return this;
+    }
+
+    public MariadbChangeOperation setType(MariadbChangeOperationType type) {
+        this.type = type;
+        return this;
+    }
+
+    public MariadbChangeOperation setUser(String user) {
+        this.user = user;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(type);
+        if (user != null) {
+            builder.append(" user=").append(user);
+        }
+        if (database != null) {
+            builder.append(" database=").append(database);
+        }
+        if (privileges != null) {
+            builder.append(" privileges=").append(privileges);
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+public enum MariadbChangeOperationType {
+
+    DATABASE_CREATE(0, false), //
+    DATABASE_DELETE(0, false), //
+    USER_CREATE(1, false), //
+    USER_DELETE(1, false), //
+    USER_PASSWORD_UPDATE(2, true), //
+    USER_PASSWORD_UPDATE_HASH(2, true), //
+    USER_PRIVILEGE_GLOBAL_REVOKE(2, true), //
+    USER_PRIVILEGE_GLOBAL_GRANT(2, true), //
+    USER_PRIVILEGE_DATABASE_REVOKE(2, true), //
+    USER_PRIVILEGE_DATABASE_GRANT(2, true), //
+    USER_PRIVILEGES_FLUSH(3, true), //
+    ;
+
+    private int phase;
+    private boolean retryable;
+
+    private MariadbChangeOperationType(int phase, boolean retryable) {
+        this.phase = phase;
+        this.retryable = retryable;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+}
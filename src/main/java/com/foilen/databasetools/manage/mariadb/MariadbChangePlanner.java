@@ -0,0 +1,236 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import com.foilen.databasetools.manage.plan.ChangePlan;
+import com.foilen.smalltools.listscomparator.ListComparatorHandler;
+import com.foilen.smalltools.listscomparator.ListsComparator;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.StringTools;
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+
+/**
+ * Compare the current state of a server with the desired one and tell what to change without touching the server.
+ */
+public class MariadbChangePlanner extends AbstractBasics {
+
+    private ChangePlan<MariadbChangeOperation> plan = new ChangePlan<>();
+    private Set<String> allDatabasePrivileges = new TreeSet<>();
+
+    public ChangePlan<MariadbChangeOperation> getPlan() {
+        return plan;
+    }
+
+    public void planAllDatabases(List<String> currentDatabases, List<String> databases) {
+
+        if (databases == null) {
+            logger.info("Databases not provided. Skipping");
+            return;
+        }
+
+        logger.info("Plan all databases");
+
+        currentDatabases = new ArrayList<>(currentDatabases);
+        Collections.sort(currentDatabases);
+        logger.info("Current list size of databases: {}", currentDatabases.size());
+
+        List<String> desiredDatabases = new ArrayList<>(databases);
+        Collections.sort(desiredDatabases);
+        logger.info("Desired list size of databases: {}", desiredDatabases.size());
+
+        ListsComparator.compareLists(currentDatabases, desiredDatabases, new ListComparatorHandler<String, String>() {
+
+            @Override
+            public void both(String left, String right) {
+                logger.info("Database {} already exists. Skip", left);
+            }
+
+            @Override
+            public void leftOnly(String current) {
+                logger.info("Database {} exists, but is not desired. Delete", current);
+                plan.add(new MariadbChangeOperation(MariadbChangeOperationType.DATABASE_DELETE).setDatabase(current));
+
+            }
+
+            @Override
+            public void rightOnly(String desired) {
+                logger.info("Database {} is missing. Create", desired);
+                plan.add(new MariadbChangeOperation(MariadbChangeOperationType.DATABASE_CREATE).setDatabase(desired));
+            }
+        });
+    }
+
+    public void planAllUsersAndGrants(List<MariadbManagerConfigUserAndGrants> currentUsersAndGrants, List<MariadbManagerConfigUser> usersToIgnore,
+            List<MariadbManagerConfigUserAndGrants> usersPermissions) {
+
+        if (usersPermissions == null) {
+            logger.info("Users and grants not provided. Skipping");
+            return;
+        }
+
+        if (usersToIgnore == null) {
+            usersToIgnore = new ArrayList<>();
+        }
+
+        logger.info("Plan all users and grants");
+        int initialSize = plan.getOperations().size();
+
+        currentUsersAndGrants = new ArrayList<>(currentUsersAndGrants);
+        Collections.sort(currentUsersAndGrants);
+        for (MariadbManagerConfigUser i : usersToIgnore) {
+            currentUsersAndGrants.removeIf(u -> StringTools.safeEquals(u.getName(), i.getName()) && StringTools.safeEquals(u.getHost(), i.getHost()));
+        }
+        logger.info("Current list size of users (without ignored): {}", currentUsersAndGrants.size());
+
+        List<MariadbManagerConfigUserAndGrants> desiredUsersAndGrants = new ArrayList<>(usersPermissions);
+        Collections.sort(desiredUsersAndGrants);
+        for (MariadbManagerConfigUser i : usersToIgnore) {
+            desiredUsersAndGrants.removeIf(u -> StringTools.safeEquals(u.getName(), i.getName()) && StringTools.safeEquals(u.getHost(), i.getHost()));
+        }
+        logger.info("Desired list size of users (without ignored): {}", desiredUsersAndGrants.size());
+
+        // Create / drop users
+        logger.info("Create / drop users");
+        ListsComparator.compareStreams( //
+                currentUsersAndGrants.stream().map(it -> it.toFullName()), //
+                desiredUsersAndGrants.stream().map(it -> it.toFullName()), //
+                new ListComparatorHandler<String, String>() {
+
+                    @Override
+                    public void both(String left, String right) {
+                        logger.info("User {} already exists. Skip", left);
+                    }
+
+                    @Override
+                    public void leftOnly(String current) {
+                        logger.info("User {} exists, but is not desired. Delete", current);
+                        plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_DELETE).setUser(current));
+
+                    }
+
+                    @Override
+                    public void rightOnly(String desired) {
+                        logger.info("User {} is missing. Create", desired);
+                        plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_CREATE).setUser(desired));
+                    }
+                });
+
+        // Update user details
+        Map<String, MariadbManagerConfigUserAndGrants> currentUserByNameAndHost = currentUsersAndGrants.stream() //
+                .collect(Collectors.toMap(u -> u.toFullName(), u -> u));
+        desiredUsersAndGrants.forEach(desiredUser -> planUserDetails(currentUserByNameAndHost.get(desiredUser.toFullName()), desiredUser));
+
+        // If changes, flush
+        if (plan.getOperations().size() > initialSize) {
+            plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PRIVILEGES_FLUSH));
+        }
+
+    }
+
+    private void planUserDetails(MariadbManagerConfigUserAndGrants currentUser, MariadbManagerConfigUserAndGrants desiredUser) {
+
+        String fullName = desiredUser.toFullName();
+        logger.info("[{}] processing", fullName);
+
+        // The user does not exist yet
+        if (currentUser == null) {
+            currentUser = new MariadbManagerConfigUserAndGrants();
+        }
+
+        // Update password
+        if (desiredUser.getHashedPassword() != null) {
+            // Use hashed password
+            if (!StringTools.safeEquals(desiredUser.getHashedPassword(), currentUser.getHashedPassword())) {
+                logger.info("[{}] hashed password is different. Updating", fullName);
+                plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PASSWORD_UPDATE_HASH).setUser(fullName).setHashedPassword(desiredUser.getHashedPassword()));
+            }
+        } else {
+            if (desiredUser.getPassword() != null) {
+                if (MariadbPasswordTools.nativePasswordHash(desiredUser.getPassword()).equalsIgnoreCase(Strings.nullToEmpty(currentUser.getHashedPassword()))) {
+                    logger.info("[{}] already has the desired password. Skip", fullName);
+                } else {
+                    logger.info("[{}] has a different desired password. Updating", fullName);
+                    plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PASSWORD_UPDATE).setUser(fullName).setPassword(desiredUser.getPassword()));
+                }
+            }
+        }
+
+        // Update global grants
+        if (desiredUser.getGlobalGrants() == null) {
+            logger.info("[{}] Global grants not provided. Skipping", fullName);
+            return;
+        }
+        logger.info("[{}] Grant / revoke global grants", fullName);
+        Set<String> currentGlobalGrants = new TreeSet<>(currentUser.getGlobalGrants() == null ? Collections.emptyList() : currentUser.getGlobalGrants());
+        Set<String> desiredGlobalGrants = new TreeSet<>(desiredUser.getGlobalGrants());
+        Set<String> globalGrantsToRevoke = new TreeSet<>(Sets.difference(currentGlobalGrants, desiredGlobalGrants));
+        Set<String> globalGrantsToGrant = new TreeSet<>(Sets.difference(desiredGlobalGrants, currentGlobalGrants));
+        if (!globalGrantsToRevoke.isEmpty()) {
+            logger.info("[{}] Global privileges {} are granted, but are not desired. Revoke", fullName, globalGrantsToRevoke);
+            plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PRIVILEGE_GLOBAL_REVOKE).setUser(fullName).setPrivileges(globalGrantsToRevoke));
+        }
+        if (!globalGrantsToGrant.isEmpty()) {
+            logger.info("[{}] Global privileges {} are missing. Grant them", fullName, globalGrantsToGrant);
+            plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PRIVILEGE_GLOBAL_GRANT).setUser(fullName).setPrivileges(globalGrantsToGrant));
+        }
+
+        // Update databaseGrants
+        if (desiredUser.getGrantsByDatabase() == null) {
+            logger.info("[{}] Databases grants not provided. Skipping", fullName);
+            return;
+        }
+        logger.info("[{}] Grant / revoke databases grants", fullName);
+        Map<String, List<String>> currentGrantsByDatabase = currentUser.getGrantsByDatabase() == null ? new HashMap<>() : currentUser.getGrantsByDatabase();
+        Set<String> databases = new TreeSet<>(currentGrantsByDatabase.keySet());
+        databases.addAll(desiredUser.getGrantsByDatabase().keySet());
+        for (String database : databases) {
+            Set<String> currentDatabaseGrants = new TreeSet<>(currentGrantsByDatabase.getOrDefault(database, Collections.emptyList()));
+            Set<String> desiredDatabaseGrants = new TreeSet<>(desiredUser.getGrantsByDatabase().getOrDefault(database, Collections.emptyList()));
+            Set<String> databaseGrantsToRevoke = new TreeSet<>(Sets.difference(currentDatabaseGrants, desiredDatabaseGrants));
+            Set<String> databaseGrantsToGrant = new TreeSet<>(Sets.difference(desiredDatabaseGrants, currentDatabaseGrants));
+            if (!databaseGrantsToRevoke.isEmpty()) {
+                logger.info("[{}] Database {} privileges {} are granted, but are not desired. Revoke", fullName, database, databaseGrantsToRevoke);
+                plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PRIVILEGE_DATABASE_REVOKE).setUser(fullName).setDatabase(database).setPrivileges(databaseGrantsToRevoke));
+            }
+            if (!databaseGrantsToGrant.isEmpty()) {
+                logger.info("[{}] Database {} privileges {} are missing. Grant them", fullName, database, databaseGrantsToGrant);
+                // Granting all the desired ones is the same, but can be collapsed to "ALL PRIVILEGES"
+                if (desiredDatabaseGrants.equals(allDatabasePrivileges)) {
+                    databaseGrantsToGrant = desiredDatabaseGrants;
+                }
+                plan.add(new MariadbChangeOperation(MariadbChangeOperationType.USER_PRIVILEGE_DATABASE_GRANT).setUser(fullName).setDatabase(database).setPrivileges(databaseGrantsToGrant));
+            }
+        }
+
+    }
+
+    /**
+     * Set all the privileges that exist on a database to know when they can be collapsed.
+     *
+     * @param allDatabasePrivileges
+     *            all the privileges
+     * @return this
+     */
+    public MariadbChangePlanner setAllDatabasePrivileges(Set<String> allDatabasePrivileges) {
+        this.allDatabasePrivileges = allDatabasePrivileges;
+        return this;
+    }
+
+}
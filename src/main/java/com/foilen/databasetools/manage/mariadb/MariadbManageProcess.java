@@ -9,344 +9,246 @@
  */
 package com.foilen.databasetools.manage.mariadb;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 
 import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.manage.AbstractManageProcess;
+import com.foilen.databasetools.manage.ConfigDeltaTools;
 import com.foilen.databasetools.manage.exception.RetryLaterException;
+import com.foilen.databasetools.manage.plan.ChangePlan;
+import com.foilen.databasetools.manage.plan.ChangePlanExecutor;
+import com.foilen.databasetools.metrics.ManageMetrics;
+import com.foilen.databasetools.metrics.PhaseTimer;
+import com.foilen.databasetools.queries.MariadbBackend;
 import com.foilen.databasetools.queries.MariadbQueries;
-import com.foilen.smalltools.filesystemupdatewatcher.handler.OneFileUpdateNotifyer;
-import com.foilen.smalltools.listscomparator.ListComparatorHandler;
-import com.foilen.smalltools.listscomparator.ListsComparator;
-import com.foilen.smalltools.tools.AbstractBasics;
-import com.foilen.smalltools.tools.JsonTools;
-import com.foilen.smalltools.tools.StringTools;
-import com.foilen.smalltools.tools.ThreadNameStateTool;
-import com.foilen.smalltools.tools.ThreadTools;
 
-public class MariadbManageProcess extends AbstractBasics implements Runnable {
+public class MariadbManageProcess extends AbstractManageProcess {
 
-    private String configFile;
-    private boolean keepAlive;
+    private static class ServerState {
 
-    private AtomicBoolean process = new AtomicBoolean(true);
+        private MariadbBackend queries;
 
-    public MariadbManageProcess(String configFile, boolean keepAlive) {
-        this.configFile = configFile;
-        this.keepAlive = keepAlive;
-    }
-
-    private void applyAllDatabases(MariadbQueries queries, List<String> databases) {
-
-        if (databases == null) {
-            logger.info("Databases not provided. Skipping");
-            return;
-        }
+        private MariadbManagerConfig lastAppliedConfig;
+        private String lastAppliedConfigHash;
 
-        logger.info("Apply all databases");
+        private ChangePlan<MariadbChangeOperation> pendingPlan;
+        private String pendingPlanConfigHash;
 
-        logger.info("Get the current list of databases");
-        List<String> currentDatabases = queries.databasesListNonSystem();
-        Collections.sort(currentDatabases);
-        logger.info("Current list size of databases: {}", currentDatabases.size());
-
-        List<String> desiredDatabases = databases;
-        Collections.sort(desiredDatabases);
-        logger.info("Desired list size of databases: {}", desiredDatabases.size());
-
-        ListsComparator.compareLists(currentDatabases, desiredDatabases, new ListComparatorHandler<String, String>() {
+    }
 
-            @Override
-            public void both(String left, String right) {
-                logger.info("Database {} already exists. Skip", left);
-            }
+    private volatile MariadbManagerConfig mariadbManagerConfig;
 
-            @Override
-            public void leftOnly(String current) {
-                logger.info("Database {} exists, but is not desired. Delete", current);
-                queries.databaseDelete(current);
+    private final Map<String, ServerState> stateByServer = new ConcurrentHashMap<>();
 
-            }
+    private Function<JdbcUriConfigConnection, MariadbBackend> backendFactory;
 
-            @Override
-            public void rightOnly(String desired) {
-                logger.info("Database {} is missing. Create", desired);
-                queries.databaseCreate(desired);
-            }
-        });
+    public MariadbManageProcess(String configFile, boolean keepAlive, boolean planOnly) {
+        super(configFile, keepAlive, planOnly);
     }
 
-    private void applyAllUsersAndGrants(MariadbQueries queries, List<MariadbManagerConfigUser> usersToIgnore, List<MariadbManagerConfigUserAndGrants> usersPermissions) {
-
-        if (usersPermissions == null) {
-            logger.info("Users and grants not provided. Skipping");
-            return;
-        }
-
-        if (usersToIgnore == null) {
-            usersToIgnore = new ArrayList<>();
+    private void applyOperation(MariadbBackend queries, MariadbChangeOperation operation) {
+        switch (operation.getType()) {
+        case DATABASE_CREATE:
+            queries.databaseCreate(operation.getDatabase());
+            break;
+        case DATABASE_DELETE:
+            queries.databaseDelete(operation.getDatabase());
+            break;
+        case USER_CREATE:
+            queries.userCreate(operation.getUser());
+            break;
+        case USER_DELETE:
+            queries.userDelete(operation.getUser());
+            break;
+        case USER_PASSWORD_UPDATE:
+            queries.userPasswordUpdate(operation.getUser(), operation.getPassword());
+            break;
+        case USER_PASSWORD_UPDATE_HASH:
+            queries.userPasswordUpdateHash(operation.getUser(), operation.getHashedPassword());
+            break;
+        case USER_PRIVILEGE_GLOBAL_REVOKE:
+            queries.userPrivilegeGlobalRevoke(operation.getUser(), operation.getPrivileges());
+            break;
+        case USER_PRIVILEGE_GLOBAL_GRANT:
+            queries.userPrivilegeGlobalGrant(operation.getUser(), operation.getPrivileges());
+            break;
+        case USER_PRIVILEGE_DATABASE_REVOKE:
+            queries.userPrivilegeDatabaseRevoke(operation.getUser(), operation.getDatabase(), operation.getPrivileges());
+            break;
+        case USER_PRIVILEGE_DATABASE_GRANT:
+            queries.userPrivilegeDatabaseGrant(operation.getUser(), operation.getDatabase(), operation.getPrivileges());
+            break;
+        case USER_PRIVILEGES_FLUSH:
+            queries.userPrivilegesFlush();
+            break;
         }
+    }
 
-        logger.info("Apply all users and grants");
-        AtomicBoolean hadChanges = new AtomicBoolean();
-
-        logger.info("Get the current list of users");
-        List<MariadbManagerConfigUserAndGrants> currentUsersAndGrants = queries.usersList();
-        Collections.sort(currentUsersAndGrants);
-        for (MariadbManagerConfigUser i : usersToIgnore) {
-            currentUsersAndGrants.removeIf(u -> StringTools.safeEquals(u.getName(), i.getName()) && StringTools.safeEquals(u.getHost(), i.getHost()));
-        }
-        logger.info("Current list size of users (without ignored): {}", currentUsersAndGrants.size());
+    @Override
+    protected void execute(JdbcUriConfigConnection connection, boolean full) {
 
-        List<MariadbManagerConfigUserAndGrants> desiredUsersAndGrants = usersPermissions;
-        Collections.sort(desiredUsersAndGrants);
-        for (MariadbManagerConfigUser i : usersToIgnore) {
-            desiredUsersAndGrants.removeIf(u -> StringTools.safeEquals(u.getName(), i.getName()) && StringTools.safeEquals(u.getHost(), i.getHost()));
-        }
-        logger.info("Desired list size of users (without ignored): {}", desiredUsersAndGrants.size());
-
-        // Create / drop users
-        logger.info("Create / drop users");
-        ListsComparator.compareStreams( //
-                currentUsersAndGrants.stream().map(it -> it.toFullName()), //
-                desiredUsersAndGrants.stream().map(it -> it.toFullName()), //
-                new ListComparatorHandler<String, String>() {
-
-                    @Override
-                    public void both(String left, String right) {
-                        logger.info("User {} already exists. Skip", left);
-                    }
-
-                    @Override
-                    public void leftOnly(String current) {
-                        logger.info("User {} exists, but is not desired. Delete", current);
-                        queries.userDelete(current);
-                        hadChanges.set(true);
-
-                    }
-
-                    @Override
-                    public void rightOnly(String desired) {
-                        logger.info("User {} is missing. Create", desired);
-                        queries.userCreate(desired);
-                        hadChanges.set(true);
-                    }
-                });
-
-        // Update user details
-        Map<String, MariadbManagerConfigUserAndGrants> currentUserByNameAndHost = currentUsersAndGrants.stream() //
-                .collect(Collectors.toMap(u -> u.toFullName(), u -> u));
-        desiredUsersAndGrants.forEach(desiredUser -> {
-
-            String fullName = desiredUser.toFullName();
-            logger.info("[{}] processing", fullName);
-
-            // Get the current user
-            MariadbManagerConfigUserAndGrants currentUser = currentUserByNameAndHost.get(fullName);
-            if (currentUser == null) {
-                currentUser = new MariadbManagerConfigUserAndGrants();
+        try {
+            MariadbManagerConfig mariadbManagerConfig = this.mariadbManagerConfig;
+            String configHash = getConfigHash();
+
+            // Get the connection (the pooled connections are kept between executions)
+            ServerState state = stateByServer.computeIfAbsent(connection.getServer(), server -> new ServerState());
+            if (state.queries == null || !connection.equals(state.queries.getConnection())) {
+                state.queries = backendFactory == null ? new MariadbQueries(connection, mariadbManagerConfig.getConnectionPool()) : backendFactory.apply(connection);
+                state.queries.setConfigFile(configFile);
+                state.lastAppliedConfig = null;
+                state.pendingPlan = null;
             }
+            MariadbBackend queries = state.queries;
 
-            // Update password
-            if (desiredUser.getHashedPassword() != null) {
-                // Use hashed password
-                if (!StringTools.safeEquals(desiredUser.getHashedPassword(), currentUser.getHashedPassword())) {
-                    logger.info("[{}] hashed password is different. Updating", fullName);
-                    queries.userPasswordUpdateHash(fullName, desiredUser.getHashedPassword());
-                    hadChanges.set(true);
-                }
+            // Resume the interrupted plan if the config did not change or plan the changes
+            ChangePlan<MariadbChangeOperation> plan;
+            if (state.pendingPlan != null && configHash.equals(state.pendingPlanConfigHash)) {
+                plan = state.pendingPlan;
+                logger.info("Resume the {} remaining operations: {}", plan.getOperations().size(), plan.countBy(MariadbChangeOperation::getType));
             } else {
-                if (desiredUser.getPassword() != null) {
-                    logger.info("[{}] has a desired password. Updating", fullName);
-                    queries.userPasswordUpdate(fullName, desiredUser.getPassword());
-                    hadChanges.set(true);
+                plan = plan(state, mariadbManagerConfig, full ? null : state.lastAppliedConfig, configHash);
+                if (plan == null) {
+                    return;
                 }
             }
+            state.pendingPlan = null;
 
-            // Update global grants
-            if (desiredUser.getGlobalGrants() == null) {
-                logger.info("[{}] Global grants not provided. Skipping", fullName);
-                return;
-            }
-            logger.info("[{}] Grant / revoke global grants", fullName);
-            if (currentUser.getGlobalGrants() == null) {
-                currentUser.setGlobalGrants(new ArrayList<>());
-            }
-            ListsComparator.compareStreams( //
-                    currentUser.getGlobalGrants().stream().sorted().distinct(), //
-                    desiredUser.getGlobalGrants().stream().sorted().distinct(), //
-                    new ListComparatorHandler<String, String>() {
-
-                        @Override
-                        public void both(String left, String right) {
-                        }
-
-                        @Override
-                        public void leftOnly(String current) {
-                            logger.info("[{}] Global privilege {} is granted, but is not desired. Revoke", fullName, current);
-                            queries.userPrivilegeGlobalRevoke(fullName, current);
-                            hadChanges.set(true);
-                        }
-
-                        @Override
-                        public void rightOnly(String desired) {
-                            logger.info("[{}] Global privilege {} is missing. Grant it", fullName, desired);
-                            queries.userPrivilegeGlobalGrant(fullName, desired);
-                            hadChanges.set(true);
-                        }
-                    });
-
-            // Update databaseGrants
-            if (desiredUser.getGrantsByDatabase() == null) {
-                logger.info("[{}] Databases grants not provided. Skipping", fullName);
+            // Make the changes
+            if (planOnly) {
+                logger.info("Plan only. Not applying");
+                plan.getOperations().forEach(operation -> logger.info("[PLAN] {}", operation));
                 return;
             }
-            logger.info("[{}] Grant / revoke databases grants", fullName);
-            if (currentUser.getGrantsByDatabase() == null) {
-                currentUser.setGrantsByDatabase(new HashMap<>());
+            ChangePlanExecutor<MariadbChangeOperation> executor = new ChangePlanExecutor<MariadbChangeOperation>(mariadbManagerConfig.getParallelism(),
+                    operation -> applyOperation(queries, operation)) //
+                            .setRetry(3, MariadbManageProcess::isTransient) //
+                            .setThreadNamePrefix("Apply-" + getDatabaseType() + "-" + configFile + "-" + connection.getServer());
+            PhaseTimer applyTimer = PhaseTimer.start(getDatabaseType(), configFile, connection.getServer(), ManageMetrics.PHASE_APPLY);
+            try {
+                executor.execute(plan);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    state.pendingPlan = executor.getRemainingPlan(plan);
+                    state.pendingPlanConfigHash = configHash;
+                }
+                throw e;
+            } finally {
+                applyTimer.stop();
             }
-            ListsComparator.compareStreams( //
-                    currentUser.getGrantsByDatabase().entrySet().stream().flatMap(e -> e.getValue().stream().map(v -> e.getKey() + "|" + v)).sorted().distinct(), //
-                    desiredUser.getGrantsByDatabase().entrySet().stream().flatMap(e -> e.getValue().stream().map(v -> e.getKey() + "|" + v)).sorted().distinct(), //
-                    new ListComparatorHandler<String, String>() {
-
-                        @Override
-                        public void both(String left, String right) {
-                        }
-
-                        @Override
-                        public void leftOnly(String current) {
-                            String[] parts = current.split("\\|");
-                            String database = parts[0];
-                            String privilege = parts[1];
-                            logger.info("[{}] Database {} privilege {} is granted, but is not desired. Revoke", fullName, database, privilege);
-                            queries.userPrivilegeDatabaseRevoke(fullName, database, privilege);
-                            hadChanges.set(true);
-                        }
-
-                        @Override
-                        public void rightOnly(String desired) {
-                            String[] parts = desired.split("\\|");
-                            String database = parts[0];
-                            String privilege = parts[1];
-                            logger.info("[{}] Database {} privilege {} is missing. Grant it", fullName, database, privilege);
-                            queries.userPrivilegeDatabaseGrant(fullName, database, privilege);
-                            hadChanges.set(true);
-                        }
-                    });
-
-        });
-
-        // If changes, flush
-        if (hadChanges.get()) {
-            queries.userPrivilegesFlush();
+            state.lastAppliedConfig = mariadbManagerConfig;
+            state.lastAppliedConfigHash = configHash;
+        } catch (CannotGetJdbcConnectionException | TransientDataAccessException | RecoverableDataAccessException e) {
+            throw new RetryLaterException("Could not connect", 15000, e);
         }
 
     }
 
-    private void execute() {
-
-        try {
-            // Load the config file
-            MariadbManagerConfig mariadbManagerConfig;
-            logger.info("Loading config file {}", configFile);
-            mariadbManagerConfig = JsonTools.readFromFile(configFile, MariadbManagerConfig.class);
-
-            // Get the connection
-            JdbcUriConfigConnection connection = mariadbManagerConfig.getConnection();
-            MariadbQueries queries = new MariadbQueries(connection);
-
-            // Make the changes
-            applyAllDatabases(queries, mariadbManagerConfig.getDatabases());
-            applyAllUsersAndGrants(queries, mariadbManagerConfig.getUsersToIgnore(), mariadbManagerConfig.getUsersPermissions());
-        } catch (CannotGetJdbcConnectionException e) {
-            throw new RetryLaterException("Could not connect", 15000, e);
-        }
+    @Override
+    protected String getDatabaseType() {
+        return "MariaDB";
+    }
 
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof CannotGetJdbcConnectionException || e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException;
     }
 
     @Override
-    public void run() {
-
-        ThreadNameStateTool threadNameStateTool = ThreadTools.nameThread() //
-                .clear() //
-                .setSeparator("-") //
-                .appendText("Manage") //
-                .appendText("MariaDB") //
-                .appendText(configFile) //
-                .change();
-        try {
-
-            // Check the config file changes when kept alive
-            if (keepAlive) {
-                logger.info("Start the file notifyer");
-                File config = new File(configFile);
-                @SuppressWarnings("resource")
-                OneFileUpdateNotifyer oneFileUpdateNotifyer = new OneFileUpdateNotifyer(config.getAbsolutePath(), fileName -> {
-                    logger.info("Config file changed. Update now");
-                    process.set(true);
-                });
-                oneFileUpdateNotifyer.initAutoUpdateSystem();
-            }
+    protected List<JdbcUriConfigConnection> loadConfig() {
+        MariadbManagerConfig mariadbManagerConfig = readConfigFile(MariadbManagerConfig.class);
+        List<JdbcUriConfigConnection> connections = toConnections(mariadbManagerConfig.getConnection(), mariadbManagerConfig.getConnections());
+        this.mariadbManagerConfig = mariadbManagerConfig;
+        setRefreshIntervalInMs(mariadbManagerConfig.getRefreshIntervalInMs());
 
-            long lastExecution = 0;
-            boolean retry = true;
-            while (retry || keepAlive) {
-                retry = false;
-
-                // Wait 1 hours if keep alive
-                if (keepAlive) {
-                    long nextExecutionOn = lastExecution + 60 * 60 * 1000;
-
-                    if (!process.get()) {
-                        long waitFor = nextExecutionOn - System.currentTimeMillis();
-                        if (waitFor > 0) {
-                            logger.info("Wait for {}ms before the next execution", waitFor);
-                            while (waitFor > 0 && !process.get()) {
-                                ThreadTools.sleep(Math.min(waitFor, 5000));
-                                waitFor = nextExecutionOn - System.currentTimeMillis();
-                            }
-                            logger.info("End of wait");
-                        }
-                    }
+        // Forget the servers that are not in the config anymore
+        Set<String> servers = connections.stream().map(JdbcUriConfigConnection::getServer).collect(Collectors.toSet());
+        stateByServer.keySet().retainAll(servers);
 
-                }
+        return connections;
+    }
 
-                // Execute
-                try {
-                    process.set(false);
-                    lastExecution = System.currentTimeMillis();
-                    execute();
-
-                } catch (RetryLaterException e) {
-                    logger.warn("Problem managing: {}. Will retry in {} ms", e.getMessage(), e.getRetryInMs());
-                    retry = true;
-                    process.set(true);
-                    try {
-                        Thread.sleep(e.getRetryInMs());
-                    } catch (InterruptedException e1) {
-                    }
-
-                } catch (Exception e) {
-                    logger.error("Problem managing", e);
-                }
+    /**
+     * Plan the changes.
+     *
+     * @param state
+     *            the state of the server
+     * @param mariadbManagerConfig
+     *            the config to apply
+     * @param previousConfig
+     *            the last applied config to only reconcile what changed since or null to reconcile everything
+     * @param configHash
+     *            the hash of the config to apply
+     * @return the plan or null if there is nothing to do
+     */
+    private ChangePlan<MariadbChangeOperation> plan(ServerState state, MariadbManagerConfig mariadbManagerConfig, MariadbManagerConfig previousConfig, String configHash) {
+
+        // Only reconcile what changed since the last applied config
+        if (previousConfig != null && configHash.equals(state.lastAppliedConfigHash)) {
+            logger.info("Config did not change. Skipping");
+            return null;
+        }
+        List<String> desiredDatabases = mariadbManagerConfig.getDatabases();
+        List<MariadbManagerConfigUserAndGrants> desiredUsersAndGrants = mariadbManagerConfig.getUsersPermissions();
+        Set<String> changedUsers = null;
+        if (previousConfig != null && ConfigDeltaTools.isSame(previousConfig.getUsersToIgnore(), mariadbManagerConfig.getUsersToIgnore())) {
+            if (ConfigDeltaTools.isSame(previousConfig.getDatabases(), desiredDatabases)) {
+                desiredDatabases = null;
             }
-
-        } finally {
-            logger.info("End of manager");
-            if (threadNameStateTool != null) {
-                threadNameStateTool.revert();
+            changedUsers = ConfigDeltaTools.changedKeys(previousConfig.getUsersPermissions(), desiredUsersAndGrants, MariadbManageProcess::toUserKey);
+            if (changedUsers != null) {
+                desiredUsersAndGrants = changedUsers.isEmpty() ? null : ConfigDeltaTools.filterByKeys(desiredUsersAndGrants, changedUsers, MariadbManageProcess::toUserKey);
             }
+            logger.info("Reconcile only the changes. Databases: {} ; Users: {}", desiredDatabases != null, changedUsers);
+        }
+
+        // Get the current state
+        MariadbBackend queries = state.queries;
+        PhaseTimer readTimer = PhaseTimer.start(getDatabaseType(), configFile, queries.getConnection().getServer(), ManageMetrics.PHASE_READ_SNAPSHOT);
+        List<String> currentDatabases = desiredDatabases == null ? null : queries.databasesListNonSystem();
+        List<MariadbManagerConfigUserAndGrants> currentUsersAndGrants = desiredUsersAndGrants == null ? null : queries.usersList();
+        if (changedUsers != null) {
+            currentUsersAndGrants = ConfigDeltaTools.filterByKeys(currentUsersAndGrants, changedUsers, MariadbManageProcess::toUserKey);
         }
+        readTimer.stop();
+
+        // Plan the changes
+        PhaseTimer planTimer = PhaseTimer.start(getDatabaseType(), configFile, queries.getConnection().getServer(), ManageMetrics.PHASE_DIFF);
+        MariadbChangePlanner planner = new MariadbChangePlanner().setAllDatabasePrivileges(queries.getAllDatabasePrivileges());
+        planner.planAllDatabases(currentDatabases, desiredDatabases);
+        planner.planAllUsersAndGrants(currentUsersAndGrants, mariadbManagerConfig.getUsersToIgnore(), desiredUsersAndGrants);
+        ChangePlan<MariadbChangeOperation> plan = planner.getPlan();
+        long planInMs = planTimer.stop();
+        logger.info("Planned {} operations in {} ms: {}", plan.getOperations().size(), planInMs, plan.countBy(MariadbChangeOperation::getType));
+        return plan;
+    }
+
+    /**
+     * Use other backends than the real servers (e.g. the simulators to load test the reconciliation). Must be set before starting.
+     *
+     * @param backendFactory
+     *            creates the backend of a server or null to use {@link MariadbQueries}
+     */
+    public void setBackendFactory(Function<JdbcUriConfigConnection, MariadbBackend> backendFactory) {
+        this.backendFactory = backendFactory;
+    }
+
+    @Override
+    protected void stop() {
+        super.stop();
+        stateByServer.clear();
+    }
 
+    private static String toUserKey(MariadbManagerConfigUserAndGrants userAndGrants) {
+        return userAndGrants.getName() + "@" + userAndGrants.getHost();
     }
 
 }
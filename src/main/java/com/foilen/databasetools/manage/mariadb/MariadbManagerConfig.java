@@ -12,24 +12,46 @@ package com.foilen.databasetools.manage.mariadb;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.foilen.databasetools.connection.JdbcConnectionPoolConfig;
 import com.foilen.databasetools.connection.JdbcUriConfigConnection;
 import com.foilen.smalltools.tools.AbstractBasics;
 
 public class MariadbManagerConfig extends AbstractBasics {
 
     private JdbcUriConfigConnection connection = new JdbcUriConfigConnection();
+    private List<JdbcUriConfigConnection> connections = new ArrayList<>();
+    private JdbcConnectionPoolConfig connectionPool = new JdbcConnectionPoolConfig();
     private List<String> databases = new ArrayList<>();
     private List<MariadbManagerConfigUser> usersToIgnore = new ArrayList<>();
     private List<MariadbManagerConfigUserAndGrants> usersPermissions = new ArrayList<>();
 
+    private int parallelism = 1;
+    private Long refreshIntervalInMs = null;
+
     public JdbcUriConfigConnection getConnection() {
         return connection;
     }
 
+    public List<JdbcUriConfigConnection> getConnections() {
+        return connections;
+    }
+
+    public JdbcConnectionPoolConfig getConnectionPool() {
+        return connectionPool;
+    }
+
     public List<String> getDatabases() {
         return databases;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public Long getRefreshIntervalInMs() {
+        return refreshIntervalInMs;
+    }
+
     public List<MariadbManagerConfigUserAndGrants> getUsersPermissions() {
         return usersPermissions;
     }
@@ -42,10 +64,26 @@ public class MariadbManagerConfig extends AbstractBasics {
         this.connection = connection;
     }
 
+    public void setConnections(List<JdbcUriConfigConnection> connections) {
+        this.connections = connections;
+    }
+
+    public void setConnectionPool(JdbcConnectionPoolConfig connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
     public void setDatabases(List<String> databases) {
         this.databases = databases;
     }
 
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setRefreshIntervalInMs(Long refreshIntervalInMs) {
+        this.refreshIntervalInMs = refreshIntervalInMs;
+    }
+
     public void setUsersPermissions(List<MariadbManagerConfigUserAndGrants> usersPermissions) {
         this.usersPermissions = usersPermissions;
     }
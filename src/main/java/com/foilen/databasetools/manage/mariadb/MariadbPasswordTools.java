@@ -0,0 +1,42 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.google.common.io.BaseEncoding;
+
+public final class MariadbPasswordTools {
+
+    /**
+     * Compute the hash of a password like the mysql_native_password plugin does (what is in the "password" column of the "user" table).
+     *
+     * @param password
+     *            the password in clear text
+     * @return the hash (e.g "*2470C0C06DEE42FD1618BB99005ADCA2EC9D1E19")
+     */
+    public static String nativePasswordHash(String password) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] firstPass = sha1.digest(password.getBytes(StandardCharsets.UTF_8));
+            byte[] secondPass = sha1.digest(firstPass);
+            return "*" + BaseEncoding.base16().upperCase().encode(secondPass);
+        } catch (NoSuchAlgorithmException e) {
+            throw new ProblemException("SHA-1 is not available", e);
+        }
+    }
+
+    private MariadbPasswordTools() {
+    }
+
+}
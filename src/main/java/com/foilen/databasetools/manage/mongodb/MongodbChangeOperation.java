@@ -0,0 +1,160 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.util.List;
+import java.util.Map;
+
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
+import com.foilen.databasetools.manage.plan.ChangeOperation;
+import com.foilen.smalltools.tools.AbstractBasics;
+
+public class MongodbChangeOperation extends AbstractBasics implements ChangeOperation {
+
+    private MongodbChangeOperationType type;
+    private String database;
+    private String user;
+    private String password;
+    private String roleDatabase;
+    private String roleName;
+    private List<MongodbFlatPrivilege> privileges;
+    private Map<String, List<String>> rolesByDatabase;
+
+    public MongodbChangeOperation() {
+    }
+
+    public MongodbChangeOperation(MongodbChangeOperationType type) {
+        this.type = type;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public List<MongodbFlatPrivilege> getPrivileges() {
+        return privileges;
+    }
+
+    public Map<String, List<String>> getRolesByDatabase() {
+        return rolesByDatabase;
+    }
+
+    public String getRoleDatabase() {
+        return roleDatabase;
+    }
+
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public MongodbChangeOperationType getType() {
+        return type;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public String orderingKey() {
+        if (user != null) {
+            return "user " + database + "." + user;
+        }
+        if (roleName != null) {
+            return "role " + roleName + "@" + roleDatabase;
+        }
+        return null;
+    }
+
+    @Override
+    public int phase() {
+        return type.getPhase();
+    }
+
+    @Override
+    public boolean retryable() {
+        return type.isRetryable();
+    }
+
+    public MongodbChangeOperation setDatabase(String database) {
+        this.database = database;
+        return this;
+    }
+
+    public MongodbChangeOperation setPassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    public MongodbChangeOperation setPrivileges(List<MongodbFlatPrivilege> privileges) {
+        this.privileges = privileges;
+        return this;
+    }
+
+    public MongodbChangeOperation setRolesByDatabase(Map<String, List<String>> rolesByDatabase) {
+        this.rolesByDatabase = rolesByDatabase;
+        return this;
+    }
+
+    public MongodbChangeOperation setRoleDatabase(String roleDatabase) {
+        this.roleDatabase = roleDatabase;
+        return this;
+    }
+
+    public MongodbChangeOperation setRoleName(String roleName) {
+        this.roleName = roleName;
+        return this;
+    }
+
+    public MongodbChangeOperation setType(MongodbChangeOperationType type) {
+        this.type = type;
+        return this;
+    }
+
+    public MongodbChangeOperation setUser(String user) {
+        this.user = user;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(type);
+        if (database != null) {
+            builder.append(" database=").append(database);
+        }
+        if (user != null) {
+            builder.append(" user=").append(user);
+        }
+        if (roleName != null) {
+            builder.append(" role=").append(roleName).append("@").append(roleDatabase);
+        }
+        if (rolesByDatabase != null) {
+            builder.append(" rolesByDatabase=").append(rolesByDatabase);
+        }
+        if (privileges != null) {
+            builder.append(" privileges=[");
+            for (int i = 0; i < privileges.size(); ++i) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                MongodbFlatPrivilege privilege = privileges.get(i);
+                builder.append(privilege.toResourceString()).append(" ").append(privilege.getActions());
+            }
+            builder.append("]");
+        }
+        return builder.toString();
+    }
+
+}
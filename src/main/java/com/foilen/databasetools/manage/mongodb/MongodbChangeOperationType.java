@@ -0,0 +1,42 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+public enum MongodbChangeOperationType {
+
+    DATABASE_REMOVE(0, false), //
+    ROLE_CREATE(1, false), //
+    ROLE_REMOVE(1, false), //
+    ROLE_PRIVILEGES_ADD(2, true), //
+    ROLE_PRIVILEGES_REMOVE(2, true), //
+    USER_CREATE(3, false), //
+    USER_REMOVE(3, false), //
+    USER_PASSWORD_UPDATE(4, true), //
+    USER_ROLES_GRANT(4, true), //
+    USER_ROLES_REVOKE(4, true), //
+    ;
+
+    private int phase;
+    private boolean retryable;
+
+    private MongodbChangeOperationType(int phase, boolean retryable) {
+        this.phase = phase;
+        this.retryable = retryable;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+import com.foilen.databasetools.manage.plan.ChangePlan;
+import com.foilen.smalltools.listscomparator.ItemsComparator;
+import com.foilen.smalltools.listscomparator.ListComparatorHandler;
+import com.foilen.smalltools.listscomparator.ListsComparator;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.CollectionsTools;
+import com.foilen.smalltools.tools.StringTools;
+import com.foilen.smalltools.tuple.Tuple2;
+import com.google.common.collect.ComparisonChain;
+
+/**
+ * Compare the current state of a server with the desired one and tell what to change without touching the server.
+ */
+public class MongodbChangePlanner extends AbstractBasics {
+
+    private ChangePlan<MongodbChangeOperation> plan = new ChangePlan<>();
+
+    public ChangePlan<MongodbChangeOperation> getPlan() {
+        return plan;
+    }
+
+    public void planAllDatabases(List<String> currentDatabases, List<String> databases) {
+
+        if (databases == null) {
+            logger.info("Databases not provided. Skipping");
+            return;
+        }
+
+        logger.info("Plan all databases (can only drop those not desired ; must create a collection to actually create a DB)");
+
+        currentDatabases = new ArrayList<>(currentDatabases);
+        Collections.sort(currentDatabases);
+        logger.info("Current list size of databases: {}", currentDatabases.size());
+
+        List<String> desiredDatabases = new ArrayList<>(databases);
+        Collections.sort(desiredDatabases);
+        logger.info("Desired list size of databases: {}", desiredDatabases.size());
+
+        ListsComparator.compareLists(currentDatabases, desiredDatabases, new ListComparatorHandler<String, String>() {
+
+            @Override
+            public void both(String left, String right) {
+                logger.info("Database {} already exists. Skip", left);
+            }
+
+            @Override
+            public void leftOnly(String current) {
+                logger.info("Database {} exists, but is not desired. Delete", current);
+                plan.add(new MongodbChangeOperation(MongodbChangeOperationType.DATABASE_REMOVE).setDatabase(current));
+
+            }
+
+            @Override
+            public void rightOnly(String desired) {
+                logger.info("Database {} is missing. Skip", desired);
+            }
+        });
+    }
+
+    public void planAllRoles(List<MongodbFlatRole> currentRoles, List<MongodbFlatRole> flatRoles) {
+
+        if (flatRoles == null) {
+            logger.info("Roles not provided. Skipping");
+            return;
+        }
+
+        logger.info("Plan all roles");
+
+        currentRoles = new ArrayList<>(currentRoles);
+        Collections.sort(currentRoles);
+        logger.info("Current list size of roles: {}", currentRoles.size());
+
+        List<MongodbFlatRole> desiredRoles = new ArrayList<>(flatRoles);
+        Collections.sort(desiredRoles);
+        logger.info("Desired list size of roles: {}", desiredRoles.size());
+
+        ListsComparator.compareLists(currentRoles, desiredRoles, new ListComparatorHandler<MongodbFlatRole, MongodbFlatRole>() {
+
+            @Override
+            public void both(MongodbFlatRole left, MongodbFlatRole right) {
+                logger.info("Role {} already exists. Skip", left);
+                planRolePrivileges(left, right);
+            }
+
+            @Override
+            public void leftOnly(MongodbFlatRole current) {
+                logger.info("Role {} exists, but is not desired. Delete", current);
+                plan.add(new MongodbChangeOperation(MongodbChangeOperationType.ROLE_REMOVE).setRoleDatabase(current.getRoleDatabase()).setRoleName(current.getRoleName()));
+            }
+
+            @Override
+            public void rightOnly(MongodbFlatRole desired) {
+                logger.info("Role {} is missing. Create", desired);
+                plan.add(new MongodbChangeOperation(MongodbChangeOperationType.ROLE_CREATE).setRoleDatabase(desired.getRoleDatabase()).setRoleName(desired.getRoleName()));
+                planRolePrivileges(new MongodbFlatRole(desired.getRoleDatabase(), desired.getRoleName()), desired);
+            }
+        });
+    }
+
+    public void planAllUsersAndRoles(List<MongodbManagerConfigUserAndRoles> currentUsersAndRoles, List<MongodbManagerConfigUser> usersToIgnore,
+            List<MongodbManagerConfigUserAndRoles> usersPermissions) {
+
+        if (usersPermissions == null) {
+            logger.info("Users and roles not provided. Skipping");
+            return;
+        }
+
+        if (usersToIgnore == null) {
+            usersToIgnore = new ArrayList<>();
+        }
+
+        logger.info("Plan all users and roles");
+
+        currentUsersAndRoles = new ArrayList<>(currentUsersAndRoles);
+        Collections.sort(currentUsersAndRoles);
+        for (MongodbManagerConfigUser i : usersToIgnore) {
+            currentUsersAndRoles.removeIf(u -> StringTools.safeEquals(u.getDatabase(), i.getDatabase()) && StringTools.safeEquals(u.getName(), i.getName()));
+        }
+        logger.info("Current list size of users (without ignored): {}", currentUsersAndRoles.size());
+
+        List<MongodbManagerConfigUserAndRoles> desiredUsersAndGrants = new ArrayList<>(usersPermissions);
+        Collections.sort(desiredUsersAndGrants);
+        for (MongodbManagerConfigUser i : usersToIgnore) {
+            desiredUsersAndGrants.removeIf(u -> StringTools.safeEquals(u.getDatabase(), i.getDatabase()) && StringTools.safeEquals(u.getName(), i.getName()));
+        }
+        logger.info("Desired list size of users (without ignored): {}", desiredUsersAndGrants.size());
+
+        Map<String, MongodbManagerConfigUserAndRoles> currentUsersAndRolesByFullName = currentUsersAndRoles.stream().collect(Collectors.toMap(u -> u.toFullName(), u -> u));
+        Map<String, MongodbManagerConfigUserAndRoles> desiredUsersAndRolesByFullName = desiredUsersAndGrants.stream().collect(Collectors.toMap(u -> u.toFullName(), u -> u));
+        // Create / drop users
+        logger.info("Create / drop users");
+        ListsComparator.compareStreams( //
+                currentUsersAndRoles.stream().map(it -> it.toFullName()), //
+                desiredUsersAndGrants.stream().map(it -> it.toFullName()), //
+                new ListComparatorHandler<String, String>() {
+
+                    @Override
+                    public void both(String current, String desired) {
+                        logger.info("User {} already exists. Skip", current);
+
+                        MongodbManagerConfigUserAndRoles currentUserAndRoles = currentUsersAndRolesByFullName.get(desired);
+                        MongodbManagerConfigUserAndRoles desiredUserAndRoles = desiredUsersAndRolesByFullName.get(desired);
+
+                        // Password
+                        if (desiredUserAndRoles.getPassword() != null) {
+                            if (MongodbScramTools.isSamePassword(desiredUserAndRoles.getName(), desiredUserAndRoles.getPassword(), currentUserAndRoles.getCredentialsByMechanism())) {
+                                logger.info("User {} already has the desired password. Skip", current);
+                            } else {
+                                logger.info("User {} has a different desired password. Update", current);
+                                plan.add(new MongodbChangeOperation(MongodbChangeOperationType.USER_PASSWORD_UPDATE) //
+                                        .setDatabase(desiredUserAndRoles.getDatabase()).setUser(desiredUserAndRoles.getName()).setPassword(desiredUserAndRoles.getPassword()));
+                            }
+                        }
+
+                        // Roles
+                        planUserRoles(desiredUserAndRoles.getDatabase(), desiredUserAndRoles.getName(), currentUserAndRoles.getRolesByDatabase(), desiredUserAndRoles.getRolesByDatabase());
+                    }
+
+                    @Override
+                    public void leftOnly(String current) {
+                        logger.info("User {} exists, but is not desired. Delete", current);
+
+                        MongodbManagerConfigUserAndRoles currentUserAndRoles = currentUsersAndRolesByFullName.get(current);
+                        plan.add(new MongodbChangeOperation(MongodbChangeOperationType.USER_REMOVE).setDatabase(currentUserAndRoles.getDatabase()).setUser(currentUserAndRoles.getName()));
+                    }
+
+                    @Override
+                    public void rightOnly(String desired) {
+                        logger.info("User {} is missing. Create", desired);
+
+                        // With its roles
+                        MongodbManagerConfigUserAndRoles desiredUserAndRoles = desiredUsersAndRolesByFullName.get(desired);
+                        plan.add(new MongodbChangeOperation(MongodbChangeOperationType.USER_CREATE) //
+                                .setDatabase(desiredUserAndRoles.getDatabase()).setUser(desiredUserAndRoles.getName()).setPassword(desiredUserAndRoles.getPassword()) //
+                                .setRolesByDatabase(toSortedRolesByDatabase(desiredUserAndRoles.getRolesByDatabase())));
+                    }
+                });
+
+    }
+
+    private void planRolePrivileges(MongodbFlatRole currentRole, MongodbFlatRole desiredRole) {
+
+        if (desiredRole == null) {
+            logger.info("Privileges for role {} / {} are not provided. Skipping", currentRole.getRoleDatabase(), currentRole.getRoleName());
+            return;
+        }
+
+        logger.info("Plan role {} / {} privileges", desiredRole.getRoleDatabase(), desiredRole.getRoleName());
+
+        List<MongodbFlatPrivilege> privilegesToAdd = new ArrayList<>();
+        List<MongodbFlatPrivilege> privilegesToRemove = new ArrayList<>();
+        ListsComparator.compareStreams( //
+                currentRole.getPrivileges().stream().sorted(), //
+                desiredRole.getPrivileges().stream().sorted(), //
+                new ListComparatorHandler<MongodbFlatPrivilege, MongodbFlatPrivilege>() {
+
+                    @Override
+                    public void both(MongodbFlatPrivilege current, MongodbFlatPrivilege desired) {
+                        logger.info("Role {} / {} already has privilege {}. Check actions", currentRole.getRoleDatabase(), currentRole.getRoleName(), desired.toResourceString());
+                        List<String> actionsToAdd = new ArrayList<>(desired.getActions());
+                        actionsToAdd.removeAll(current.getActions());
+                        Collections.sort(actionsToAdd);
+                        List<String> actionsToRemove = new ArrayList<>(current.getActions());
+                        actionsToRemove.removeAll(desired.getActions());
+                        Collections.sort(actionsToRemove);
+
+                        if (!actionsToAdd.isEmpty()) {
+                            privilegesToAdd.add(new MongodbFlatPrivilege(desired.getDatabase(), desired.getCollection(), desired.getCluster(), actionsToAdd));
+                        }
+                        if (!actionsToRemove.isEmpty()) {
+                            privilegesToRemove.add(new MongodbFlatPrivilege(desired.getDatabase(), desired.getCollection(), desired.getCluster(), actionsToRemove));
+                        }
+                    }
+
+                    @Override
+                    public void leftOnly(MongodbFlatPrivilege current) {
+                        logger.info("Role {} / {} has privilege {} , but is not desired. Remove", currentRole.getRoleDatabase(), currentRole.getRoleName(), current.toResourceString());
+                        privilegesToRemove.add(current);
+                    }
+
+                    @Override
+                    public void rightOnly(MongodbFlatPrivilege desired) {
+                        logger.info("Role {} / {} does not have privilege {} and it is desired. Create and add actions", currentRole.getRoleDatabase(), currentRole.getRoleName(),
+                                desired.toResourceString());
+                        privilegesToAdd.add(desired);
+                    }
+
+                });
+
+        // All the changes of the role are sent together
+        if (!privilegesToAdd.isEmpty()) {
+            plan.add(new MongodbChangeOperation(MongodbChangeOperationType.ROLE_PRIVILEGES_ADD) //
+                    .setRoleDatabase(currentRole.getRoleDatabase()).setRoleName(currentRole.getRoleName()).setPrivileges(privilegesToAdd));
+        }
+        if (!privilegesToRemove.isEmpty()) {
+            plan.add(new MongodbChangeOperation(MongodbChangeOperationType.ROLE_PRIVILEGES_REMOVE) //
+                    .setRoleDatabase(currentRole.getRoleDatabase()).setRoleName(currentRole.getRoleName()).setPrivileges(privilegesToRemove));
+        }
+
+    }
+
+    private void planUserRoles(String database, String user, Map<String, List<String>> currentRolesByDatabase, Map<String, List<String>> desiredRolesByDatabase) {
+
+        if (desiredRolesByDatabase == null) {
+            logger.info("Roles for user {} / {} are not provided. Skipping", database, user);
+            return;
+        }
+
+        logger.info("Plan user {} / {} roles by database", database, user);
+
+        Map<String, List<String>> rolesToRevokeByDatabase = new TreeMap<>();
+        Map<String, List<String>> rolesToGrantByDatabase = new TreeMap<>();
+
+        ListsComparator.compareStreams( //
+                currentRolesByDatabase.entrySet().stream() //
+                        .flatMap(e -> e.getValue().stream().map(v -> new Tuple2<>(e.getKey(), v))) //
+                        .sorted((a, b) -> ComparisonChain.start().compare(a.getA(), b.getA()).compare(a.getB(), b.getB()).result()) //
+                        .distinct(), //
+                desiredRolesByDatabase.entrySet().stream()//
+                        .flatMap(e -> e.getValue().stream().map(v -> new Tuple2<>(e.getKey(), v))) //
+                        .sorted((a, b) -> ComparisonChain.start().compare(a.getA(), b.getA()).compare(a.getB(), b.getB()).result()) //
+                        .distinct(), //
+                new ItemsComparator<Tuple2<String, String>, Tuple2<String, String>>() {
+
+                    @Override
+                    public int compareTo(Tuple2<String, String> a, Tuple2<String, String> b) {
+                        return ComparisonChain.start() //
+                                .compare(a.getA(), b.getA()) //
+                                .compare(a.getB(), b.getB()) //
+                                .result();
+                    }
+                }, //
+                new ListComparatorHandler<Tuple2<String, String>, Tuple2<String, String>>() {
+
+                    @Override
+                    public void both(Tuple2<String, String> current, Tuple2<String, String> desired) {
+                        logger.info("User {} / {} already has role {} / {}. Skip", database, user, desired.getA(), desired.getB());
+
+                    }
+
+                    @Override
+                    public void leftOnly(Tuple2<String, String> current) {
+                        logger.info("User {} / {} has role {} / {} , but is not desired. Remove", database, user, current.getA(), current.getB());
+                        CollectionsTools.getOrCreateEmptyArrayList(rolesToRevokeByDatabase, current.getA(), String.class).add(current.getB());
+                    }
+
+                    @Override
+                    public void rightOnly(Tuple2<String, String> desired) {
+                        logger.info("User {} / {} does not have role {} / {} and it is desired. Grant", database, user, desired.getA(), desired.getB());
+                        CollectionsTools.getOrCreateEmptyArrayList(rolesToGrantByDatabase, desired.getA(), String.class).add(desired.getB());
+                    }
+
+                });
+
+        // All the changes of the user are sent together
+        if (!rolesToRevokeByDatabase.isEmpty()) {
+            plan.add(new MongodbChangeOperation(MongodbChangeOperationType.USER_ROLES_REVOKE).setDatabase(database).setUser(user).setRolesByDatabase(rolesToRevokeByDatabase));
+        }
+        if (!rolesToGrantByDatabase.isEmpty()) {
+            plan.add(new MongodbChangeOperation(MongodbChangeOperationType.USER_ROLES_GRANT).setDatabase(database).setUser(user).setRolesByDatabase(rolesToGrantByDatabase));
+        }
+
+    }
+
+    private Map<String, List<String>> toSortedRolesByDatabase(Map<String, List<String>> rolesByDatabase) {
+        Map<String, List<String>> sortedRolesByDatabase = new TreeMap<>();
+        if (rolesByDatabase != null) {
+            rolesByDatabase.forEach((roleDatabase, roleNames) -> sortedRolesByDatabase.put(roleDatabase, roleNames.stream().sorted().distinct().collect(Collectors.toList())));
+        }
+        return sortedRolesByDatabase;
+    }
+
+}
@@ -9,402 +9,417 @@
  */
 package com.foilen.databasetools.manage.mongodb;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.foilen.databasetools.connection.JdbcUriConfigConnection;
-import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.AbstractManageProcess;
+import com.foilen.databasetools.manage.ConfigDeltaTools;
 import com.foilen.databasetools.manage.exception.RetryLaterException;
-import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
 import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+import com.foilen.databasetools.manage.plan.ChangePlan;
+import com.foilen.databasetools.manage.plan.ChangePlanExecutor;
+import com.foilen.databasetools.metrics.ManageMetrics;
+import com.foilen.databasetools.metrics.PhaseTimer;
+import com.foilen.databasetools.queries.MongodbBackend;
 import com.foilen.databasetools.queries.MongodbQueries;
-import com.foilen.smalltools.filesystemupdatewatcher.handler.OneFileUpdateNotifyer;
-import com.foilen.smalltools.listscomparator.ItemsComparator;
-import com.foilen.smalltools.listscomparator.ListComparatorHandler;
-import com.foilen.smalltools.listscomparator.ListsComparator;
-import com.foilen.smalltools.tools.AbstractBasics;
-import com.foilen.smalltools.tools.JsonTools;
-import com.foilen.smalltools.tools.StringTools;
-import com.foilen.smalltools.tools.ThreadNameStateTool;
-import com.foilen.smalltools.tools.ThreadTools;
-import com.foilen.smalltools.tuple.Tuple2;
-import com.google.common.collect.ComparisonChain;
 import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
 import com.mongodb.MongoTimeoutException;
 
-public class MongodbManageProcess extends AbstractBasics implements Runnable {
+public class MongodbManageProcess extends AbstractManageProcess {
 
-    private String configFile;
-    private boolean keepAlive;
+    private static class ServerState {
 
-    private AtomicBoolean process = new AtomicBoolean(true);
+        private volatile MongodbBackend queries;
 
-    public MongodbManageProcess(String configFile, boolean keepAlive) {
-        this.configFile = configFile;
-        this.keepAlive = keepAlive;
-    }
-
-    private void applyAllDatabases(MongodbQueries queries, List<String> databases) {
+        private MongodbManagerConfig lastAppliedConfig;
+        private String lastAppliedConfigHash;
 
-        if (databases == null) {
-            logger.info("Databases not provided. Skipping");
-            return;
-        }
+        private ChangePlan<MongodbChangeOperation> pendingPlan;
+        private String pendingPlanConfigHash;
 
-        logger.info("Apply all databases (can only drop those not desired ; must create a collection to actually create a DB)");
+        private final AtomicBoolean driftCheckQueued = new AtomicBoolean();
 
-        logger.info("Get the current list of databases");
-        List<String> currentDatabases = queries.databasesListNonSystem();
-        Collections.sort(currentDatabases);
-        logger.info("Current list size of databases: {}", currentDatabases.size());
+        // Guarded by driftedCollections
+        private final Set<String> driftedCollections = new TreeSet<>();
+        private Map<String, String> systemCollectionsHash;
+        private Map<String, String> pendingSystemCollectionsHash;
 
-        List<String> desiredDatabases = databases;
-        Collections.sort(desiredDatabases);
-        logger.info("Desired list size of databases: {}", desiredDatabases.size());
+    }
 
-        ListsComparator.compareLists(currentDatabases, desiredDatabases, new ListComparatorHandler<String, String>() {
+    private volatile MongodbManagerConfig mongodbManagerConfig;
+    private volatile List<MongodbFlatRole> desiredRoles;
 
-            @Override
-            public void both(String left, String right) {
-                logger.info("Database {} already exists. Skip", left);
-            }
+    private final Map<String, ServerState> stateByServer = new ConcurrentHashMap<>();
 
-            @Override
-            public void leftOnly(String current) {
-                logger.info("Database {} exists, but is not desired. Delete", current);
-                queries.databaseRemove(current);
+    private Function<JdbcUriConfigConnection, MongodbBackend> backendFactory;
 
-            }
+    // Guarded by stateByServer
+    private Long driftCheckIntervalInMs;
+    private ScheduledFuture<?> driftCheck;
 
-            @Override
-            public void rightOnly(String desired) {
-                logger.info("Database {} is missing. Skip", desired);
-            }
-        });
+    public MongodbManageProcess(String configFile, boolean keepAlive, boolean planOnly) {
+        super(configFile, keepAlive, planOnly);
     }
 
-    private void applyAllRoles(MongodbQueries queries, List<MongodbFlatRole> flatRoles) {
-
-        if (flatRoles == null) {
-            logger.info("Roles not provided. Skipping");
-            return;
+    private void applyOperation(MongodbBackend queries, MongodbChangeOperation operation) {
+        switch (operation.getType()) {
+        case DATABASE_REMOVE:
+            queries.databaseRemove(operation.getDatabase());
+            break;
+        case ROLE_CREATE:
+            queries.roleCreate(operation.getRoleDatabase(), operation.getRoleName());
+            break;
+        case ROLE_REMOVE:
+            queries.roleRemove(operation.getRoleDatabase(), operation.getRoleName());
+            break;
+        case ROLE_PRIVILEGES_ADD:
+            queries.rolePrivilegesAdd(operation.getRoleDatabase(), operation.getRoleName(), operation.getPrivileges());
+            break;
+        case ROLE_PRIVILEGES_REMOVE:
+            queries.rolePrivilegesRemove(operation.getRoleDatabase(), operation.getRoleName(), operation.getPrivileges());
+            break;
+        case USER_CREATE:
+            queries.userCreate(operation.getDatabase(), operation.getUser(), operation.getPassword(), operation.getRolesByDatabase());
+            break;
+        case USER_REMOVE:
+            queries.userRemove(operation.getDatabase(), operation.getUser());
+            break;
+        case USER_PASSWORD_UPDATE:
+            queries.userPasswordUpdate(operation.getDatabase(), operation.getUser(), operation.getPassword());
+            break;
+        case USER_ROLES_GRANT:
+            queries.userRolesGrant(operation.getDatabase(), operation.getUser(), operation.getRolesByDatabase());
+            break;
+        case USER_ROLES_REVOKE:
+            queries.userRolesRevoke(operation.getDatabase(), operation.getUser(), operation.getRolesByDatabase());
+            break;
         }
-
-        logger.info("Apply all roles");
-
-        logger.info("Get the current list of roles");
-        List<MongodbFlatRole> currentRoles = queries.rolesList();
-        Collections.sort(currentRoles);
-        logger.info("Current list size of roles: {}", currentRoles.size());
-
-        List<MongodbFlatRole> desiredRoles = flatRoles;
-        Collections.sort(desiredRoles);
-        logger.info("Desired list size of roles: {}", desiredRoles.size());
-
-        ListsComparator.compareLists(currentRoles, desiredRoles, new ListComparatorHandler<MongodbFlatRole, MongodbFlatRole>() {
-
-            @Override
-            public void both(MongodbFlatRole left, MongodbFlatRole right) {
-                logger.info("Role {} already exists. Skip", left);
-                applyRolePrivileges(queries, left, right);
-            }
-
-            @Override
-            public void leftOnly(MongodbFlatRole current) {
-                logger.info("Role {} exists, but is not desired. Delete", current);
-                queries.roleRemove(current.getRoleDatabase(), current.getRoleName());
-            }
-
-            @Override
-            public void rightOnly(MongodbFlatRole desired) {
-                logger.info("Role {} is missing. Create", desired);
-                queries.roleCreate(desired.getRoleDatabase(), desired.getRoleName());
-                applyRolePrivileges(queries, new MongodbFlatRole(desired.getRoleDatabase(), desired.getRoleName()), desired);
-            }
-        });
     }
 
-    private void applyAllUsersAndRoles(MongodbQueries queries, List<MongodbManagerConfigUser> usersToIgnore, List<MongodbManagerConfigUserAndRoles> usersPermissions) {
-
-        if (usersPermissions == null) {
-            logger.info("Users and roles not provided. Skipping");
+    /**
+     * Check if the users or roles were changed directly on the servers. A change must be seen on 2 consecutive checks with the same hash before triggering a reconcile to let a
+     * burst of manual changes settle. The checks wait for their server like the executions to not add more load on a busy server.
+     */
+    private void checkDrift() {
+        if (isRunning()) {
             return;
         }
 
-        if (usersToIgnore == null) {
-            usersToIgnore = new ArrayList<>();
+        for (Entry<String, ServerState> entry : stateByServer.entrySet()) {
+            String server = entry.getKey();
+            ServerState state = entry.getValue();
+            if (!state.driftCheckQueued.compareAndSet(false, true)) {
+                continue;
+            }
+            getScheduler().executeForServer(server, () -> {
+                try {
+                    if (!isRunning() && checkDrift(server, state)) {
+                        trigger();
+                    }
+                } finally {
+                    state.driftCheckQueued.set(false);
+                }
+            });
         }
+    }
 
-        logger.info("Apply all users and roles");
-
-        logger.info("Get the current list of users");
-        List<MongodbManagerConfigUserAndRoles> currentUsersAndRoles = queries.usersList();
-        Collections.sort(currentUsersAndRoles);
-        for (MongodbManagerConfigUser i : usersToIgnore) {
-            currentUsersAndRoles.removeIf(u -> StringTools.safeEquals(u.getDatabase(), i.getDatabase()) && StringTools.safeEquals(u.getName(), i.getName()));
+    /**
+     * Check if the users or roles were changed directly on one server. The changes made by the other config files of the same server are also seen as a drift since they cannot be
+     * told apart from a manual change made at the same time: the reconcile of what drifted then simply plans nothing when only the tool changed the server.
+     *
+     * @param server
+     *            the server
+     * @param state
+     *            its state
+     * @return true if the drift settled and the server needs to be reconciled
+     */
+    private boolean checkDrift(String server, ServerState state) {
+        MongodbBackend queries = state.queries;
+        if (queries == null) {
+            return false;
         }
-        logger.info("Current list size of users (without ignored): {}", currentUsersAndRoles.size());
 
-        List<MongodbManagerConfigUserAndRoles> desiredUsersAndGrants = usersPermissions;
-        Collections.sort(desiredUsersAndGrants);
-        for (MongodbManagerConfigUser i : usersToIgnore) {
-            desiredUsersAndGrants.removeIf(u -> StringTools.safeEquals(u.getDatabase(), i.getDatabase()) && StringTools.safeEquals(u.getName(), i.getName()));
+        Map<String, String> hashByCollection;
+        try {
+            hashByCollection = queries.systemCollectionsHash();
+        } catch (Exception e) {
+            logger.warn("Could not check for drift on {}: {}", server, e.getMessage());
+            return false;
         }
-        logger.info("Desired list size of users (without ignored): {}", desiredUsersAndGrants.size());
-
-        Map<String, MongodbManagerConfigUserAndRoles> currentUsersAndRolesByFullName = currentUsersAndRoles.stream().collect(Collectors.toMap(u -> u.toFullName(), u -> u));
-        Map<String, MongodbManagerConfigUserAndRoles> desiredUsersAndRolesByFullName = desiredUsersAndGrants.stream().collect(Collectors.toMap(u -> u.toFullName(), u -> u));
-        // Create / drop users
-        logger.info("Create / drop users");
-        ListsComparator.compareStreams( //
-                currentUsersAndRoles.stream().map(it -> it.toFullName()), //
-                desiredUsersAndGrants.stream().map(it -> it.toFullName()), //
-                new ListComparatorHandler<String, String>() {
-
-                    @Override
-                    public void both(String current, String desired) {
-                        logger.info("User {} already exists. Skip", current);
-
-                        MongodbManagerConfigUserAndRoles currentUserAndRoles = currentUsersAndRolesByFullName.get(desired);
-                        MongodbManagerConfigUserAndRoles desiredUserAndRoles = desiredUsersAndRolesByFullName.get(desired);
-
-                        // Password
-                        if (desiredUserAndRoles.getPassword() != null) {
-                            queries.userPasswordUpdate(desiredUserAndRoles.getDatabase(), desiredUserAndRoles.getName(), desiredUserAndRoles.getPassword());
-                        }
-
-                        // Roles
-                        applyUserRoles(queries, desiredUserAndRoles.getDatabase(), desiredUserAndRoles.getName(), currentUserAndRoles.getRolesByDatabase(), desiredUserAndRoles.getRolesByDatabase());
-                    }
-
-                    @Override
-                    public void leftOnly(String current) {
-                        logger.info("User {} exists, but is not desired. Delete", current);
-
-                        MongodbManagerConfigUserAndRoles currentUserAndRoles = currentUsersAndRolesByFullName.get(current);
-                        queries.userRemove(currentUserAndRoles.getDatabase(), currentUserAndRoles.getName());
-                    }
-
-                    @Override
-                    public void rightOnly(String desired) {
-                        logger.info("User {} is missing. Create", desired);
 
-                        MongodbManagerConfigUserAndRoles desiredUserAndRoles = desiredUsersAndRolesByFullName.get(desired);
-                        queries.userCreate(desiredUserAndRoles.getDatabase(), desiredUserAndRoles.getName(), desiredUserAndRoles.getPassword());
-
-                        // Roles
-                        applyUserRoles(queries, desiredUserAndRoles.getDatabase(), desiredUserAndRoles.getName(), new HashMap<>(), desiredUserAndRoles.getRolesByDatabase());
-                    }
-                });
-
-    }
-
-    private void applyRolePrivileges(MongodbQueries queries, MongodbFlatRole currentRole, MongodbFlatRole desiredRole) {
+        synchronized (state.driftedCollections) {
+            if (state.systemCollectionsHash == null || hashByCollection.equals(state.systemCollectionsHash)) {
+                state.pendingSystemCollectionsHash = null;
+                return false;
+            }
+            if (!hashByCollection.equals(state.pendingSystemCollectionsHash)) {
+                logger.info("Drift detected on {}. Waiting for the changes to settle", server);
+                state.pendingSystemCollectionsHash = hashByCollection;
+                return false;
+            }
 
-        if (desiredRole == null) {
-            logger.info("Privileges for role {} / {} are not provided. Skipping", currentRole.getRoleDatabase(), currentRole.getRoleName());
-            return;
+            hashByCollection.forEach((collection, hash) -> {
+                if (!Objects.equals(hash, state.systemCollectionsHash.get(collection))) {
+                    state.driftedCollections.add(collection);
+                }
+            });
+            logger.info("Drift settled on {} in {}", server, state.driftedCollections);
         }
-
-        logger.info("Apply role {} / {} privileges", desiredRole.getRoleDatabase(), desiredRole.getRoleName());
-
-        ListsComparator.compareStreams( //
-                currentRole.getPrivileges().stream().sorted(), //
-                desiredRole.getPrivileges().stream().sorted(), //
-                new ListComparatorHandler<MongodbFlatPrivilege, MongodbFlatPrivilege>() {
-
-                    @Override
-                    public void both(MongodbFlatPrivilege current, MongodbFlatPrivilege desired) {
-                        logger.info("Role {} / {} already has privilege {}. Check actions", currentRole.getRoleDatabase(), currentRole.getRoleName(), desired.toResourceString());
-                        Collections.sort(current.getActions());
-                        Collections.sort(desired.getActions());
-                        List<String> actionsToAdd = new ArrayList<>(desired.getActions());
-                        actionsToAdd.removeAll(current.getActions());
-                        List<String> actionsToRemove = new ArrayList<>(current.getActions());
-                        actionsToRemove.removeAll(desired.getActions());
-
-                        if (!actionsToAdd.isEmpty()) {
-                            queries.rolePrivilegeAdd(currentRole.getRoleDatabase(), currentRole.getRoleName(), desired, actionsToAdd);
-                        }
-                        if (!actionsToRemove.isEmpty()) {
-                            queries.rolePrivilegeRemove(currentRole.getRoleDatabase(), currentRole.getRoleName(), desired, actionsToRemove);
-                        }
-                    }
-
-                    @Override
-                    public void leftOnly(MongodbFlatPrivilege current) {
-                        logger.info("Role {} / {} has privilege {} , but is not desired. Remove", currentRole.getRoleDatabase(), currentRole.getRoleName(), current.toResourceString());
-                        queries.rolePrivilegeRemove(currentRole.getRoleDatabase(), currentRole.getRoleName(), current, current.getActions());
-                    }
-
-                    @Override
-                    public void rightOnly(MongodbFlatPrivilege desired) {
-                        logger.info("Role {} / {} does not have privilege {} and it is desired. Create and add actions", currentRole.getRoleDatabase(), currentRole.getRoleName(),
-                                desired.toResourceString());
-                        queries.rolePrivilegeAdd(currentRole.getRoleDatabase(), currentRole.getRoleName(), desired, desired.getActions());
-                    }
-
-                });
-
+        return true;
     }
 
-    private void applyUserRoles(MongodbQueries queries, String database, String user, Map<String, List<String>> currentRolesByDatabase, Map<String, List<String>> desiredRolesByDatabase) {
+    @Override
+    protected void execute(JdbcUriConfigConnection connection, boolean full) {
 
-        if (desiredRolesByDatabase == null) {
-            logger.info("Roles for user {} / {} are not provided. Skipping", database, user);
-            return;
+        ServerState state = stateByServer.computeIfAbsent(connection.getServer(), server -> new ServerState());
+
+        // Get what drifted
+        Set<String> driftedCollections = new TreeSet<>();
+        synchronized (state.driftedCollections) {
+            driftedCollections.addAll(state.driftedCollections);
+            state.driftedCollections.clear();
         }
 
-        logger.info("Apply user {} / {} roles by database", database, user);
-
-        ListsComparator.compareStreams( //
-                currentRolesByDatabase.entrySet().stream() //
-                        .flatMap(e -> e.getValue().stream().map(v -> new Tuple2<>(e.getKey(), v))) //
-                        .sorted((a, b) -> ComparisonChain.start().compare(a.getA(), b.getA()).compare(a.getB(), b.getB()).result()) //
-                        .distinct(), //
-                desiredRolesByDatabase.entrySet().stream()//
-                        .flatMap(e -> e.getValue().stream().map(v -> new Tuple2<>(e.getKey(), v))) //
-                        .sorted((a, b) -> ComparisonChain.start().compare(a.getA(), b.getA()).compare(a.getB(), b.getB()).result()) //
-                        .distinct(), //
-                new ItemsComparator<Tuple2<String, String>, Tuple2<String, String>>() {
-
-                    @Override
-                    public int compareTo(Tuple2<String, String> a, Tuple2<String, String> b) {
-                        return ComparisonChain.start() //
-                                .compare(a.getA(), b.getA()) //
-                                .compare(a.getB(), b.getB()) //
-                                .result();
-                    }
-                }, //
-                new ListComparatorHandler<Tuple2<String, String>, Tuple2<String, String>>() {
+        try {
+            MongodbManagerConfig mongodbManagerConfig = this.mongodbManagerConfig;
+            String configHash = getConfigHash();
 
-                    @Override
-                    public void both(Tuple2<String, String> current, Tuple2<String, String> desired) {
-                        logger.info("User {} / {} already has role {} / {}. Skip", database, user, desired.getA(), desired.getB());
+            // Get the connection (the client is kept between executions)
+            if (state.queries == null || !connection.equals(state.queries.getConnection())) {
+                if (state.queries != null) {
+                    state.queries.close();
+                }
+                state.queries = backendFactory == null ? new MongodbQueries(connection) : backendFactory.apply(connection);
+                state.queries.setConfigFile(configFile);
+                state.lastAppliedConfig = null;
+                state.pendingPlan = null;
+            }
+            MongodbBackend queries = state.queries;
+
+            // Resume the interrupted plan if the config did not change or plan the changes
+            ChangePlan<MongodbChangeOperation> plan;
+            if (state.pendingPlan != null && configHash.equals(state.pendingPlanConfigHash) && driftedCollections.isEmpty()) {
+                plan = state.pendingPlan;
+                logger.info("Resume the {} remaining operations: {}", plan.getOperations().size(), plan.countBy(MongodbChangeOperation::getType));
+            } else {
+                plan = plan(state, mongodbManagerConfig, full ? null : state.lastAppliedConfig, configHash, driftedCollections);
+                if (plan == null) {
+                    return;
+                }
+            }
+            state.pendingPlan = null;
 
-                    }
+            // Make the changes
+            if (planOnly) {
+                logger.info("Plan only. Not applying");
+                plan.getOperations().forEach(operation -> logger.info("[PLAN] {}", operation));
+                return;
+            }
+            ChangePlanExecutor<MongodbChangeOperation> executor = new ChangePlanExecutor<MongodbChangeOperation>(1, operation -> applyOperation(queries, operation)) //
+                    .setRetry(3, MongodbManageProcess::isTransient) //
+                    .setThreadNamePrefix("Apply-" + getDatabaseType() + "-" + configFile + "-" + connection.getServer());
+            PhaseTimer applyTimer = PhaseTimer.start(getDatabaseType(), configFile, connection.getServer(), ManageMetrics.PHASE_APPLY);
+            try {
+                executor.execute(plan);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    state.pendingPlan = executor.getRemainingPlan(plan);
+                    state.pendingPlanConfigHash = configHash;
+                }
+                throw e;
+            } finally {
+                applyTimer.stop();
+            }
+            state.lastAppliedConfig = mongodbManagerConfig;
+            state.lastAppliedConfigHash = configHash;
 
-                    @Override
-                    public void leftOnly(Tuple2<String, String> current) {
-                        logger.info("User {} / {} has role {} / {} , but is not desired. Remove", database, user, current.getA(), current.getB());
-                        queries.userRoleRevoke(database, user, current.getA(), current.getB());
-                    }
+            // Our own changes are not a drift
+            if (keepAlive) {
+                Long intervalInMs = mongodbManagerConfig.getDriftCheckIntervalInMs();
+                Map<String, String> hashByCollection = intervalInMs == null ? null : queries.systemCollectionsHash();
+                synchronized (state.driftedCollections) {
+                    state.systemCollectionsHash = hashByCollection;
+                    state.pendingSystemCollectionsHash = null;
+                }
+                updateDriftCheck(intervalInMs);
+            }
+        } catch (MongoTimeoutException | MongoNotPrimaryException | MongoSocketException e) {
+            throw new RetryLaterException("Could not connect", 15000, e);
+        }
 
-                    @Override
-                    public void rightOnly(Tuple2<String, String> desired) {
-                        logger.info("User {} / {} does not have role {} / {} and it is desired. Grant", database, user, desired.getA(), desired.getB());
-                        queries.userRoleGrant(database, user, desired.getA(), desired.getB());
-                    }
+    }
 
-                });
+    @Override
+    protected String getDatabaseType() {
+        return "MongoDB";
+    }
 
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof MongoTimeoutException || e instanceof MongoNotPrimaryException || e instanceof MongoSocketException;
     }
 
-    private void execute() {
+    @Override
+    protected List<JdbcUriConfigConnection> loadConfig() {
+        MongodbManagerConfig mongodbManagerConfig = readConfigFile(MongodbManagerConfig.class);
+        List<JdbcUriConfigConnection> connections = toConnections(mongodbManagerConfig.getConnection(), mongodbManagerConfig.getConnections());
+        this.desiredRoles = mongodbManagerConfig.toFlatRoles();
+        this.mongodbManagerConfig = mongodbManagerConfig;
+        setRefreshIntervalInMs(mongodbManagerConfig.getRefreshIntervalInMs());
+
+        // Forget the servers that are not in the config anymore
+        Set<String> servers = connections.stream().map(JdbcUriConfigConnection::getServer).collect(Collectors.toSet());
+        stateByServer.entrySet().removeIf(entry -> {
+            if (servers.contains(entry.getKey())) {
+                return false;
+            }
+            if (entry.getValue().queries != null) {
+                entry.getValue().queries.close();
+            }
+            return true;
+        });
 
-        try {
-            // Load the config file
-            MongodbManagerConfig mongodbManagerConfig;
-            logger.info("Loading config file {}", configFile);
-            mongodbManagerConfig = JsonTools.readFromFile(configFile, MongodbManagerConfig.class);
+        return connections;
+    }
 
-            // Get the connection
-            JdbcUriConfigConnection connection = mongodbManagerConfig.getConnection();
-            MongodbQueries queries = new MongodbQueries(connection);
+    /**
+     * Plan the changes.
+     *
+     * @param state
+     *            the state of the server
+     * @param mongodbManagerConfig
+     *            the config to apply
+     * @param previousConfig
+     *            the last applied config to only reconcile what changed since or null to reconcile everything
+     * @param configHash
+     *            the hash of the config to apply
+     * @param driftedCollections
+     *            the system collections that drifted on the server and must be fully reconciled
+     * @return the plan or null if there is nothing to do
+     */
+    private ChangePlan<MongodbChangeOperation> plan(ServerState state, MongodbManagerConfig mongodbManagerConfig, MongodbManagerConfig previousConfig, String configHash,
+            Set<String> driftedCollections) {
+
+        // Only reconcile what changed since the last applied config and what drifted
+        if (previousConfig != null && configHash.equals(state.lastAppliedConfigHash) && driftedCollections.isEmpty()) {
+            logger.info("Config did not change. Skipping");
+            return null;
+        }
+        List<String> desiredDatabases = mongodbManagerConfig.getDatabases();
+        List<MongodbFlatRole> desiredRoles = this.desiredRoles;
+        List<MongodbManagerConfigUserAndRoles> desiredUsersAndRoles = mongodbManagerConfig.getUsersPermissions();
+        Set<String> changedRoles = null;
+        Set<String> changedUsers = null;
+        if (previousConfig != null && ConfigDeltaTools.isSame(previousConfig.getUsersToIgnore(), mongodbManagerConfig.getUsersToIgnore())) {
+            if (ConfigDeltaTools.isSame(previousConfig.getDatabases(), desiredDatabases)) {
+                desiredDatabases = null;
+            }
+            if (!driftedCollections.contains(MongodbQueries.COLLECTION_SYSTEM_ROLES)) {
+                changedRoles = ConfigDeltaTools.changedKeys(previousConfig.toFlatRoles(), desiredRoles, MongodbManageProcess::toRoleKey);
+            }
+            if (!driftedCollections.contains(MongodbQueries.COLLECTION_SYSTEM_USERS)) {
+                changedUsers = ConfigDeltaTools.changedKeys(previousConfig.getUsersPermissions(), desiredUsersAndRoles, MongodbManageProcess::toUserKey);
+            }
+            if (changedRoles != null) {
+                desiredRoles = changedRoles.isEmpty() ? null : ConfigDeltaTools.filterByKeys(desiredRoles, changedRoles, MongodbManageProcess::toRoleKey);
+            }
+            if (changedUsers != null) {
+                desiredUsersAndRoles = changedUsers.isEmpty() ? null : ConfigDeltaTools.filterByKeys(desiredUsersAndRoles, changedUsers, MongodbManageProcess::toUserKey);
+            }
+            logger.info("Reconcile only the changes. Drifted: {} ; Databases: {} ; Roles: {} ; Users: {}", driftedCollections, desiredDatabases != null, changedRoles, changedUsers);
+        }
 
-            // Make the changes
-            applyAllDatabases(queries, mongodbManagerConfig.getDatabases());
-            applyAllRoles(queries, mongodbManagerConfig.toFlatRoles());
-            applyAllUsersAndRoles(queries, mongodbManagerConfig.getUsersToIgnore(), mongodbManagerConfig.getUsersPermissions());
-        } catch (MongoTimeoutException | MongoNotPrimaryException e) {
-            throw new RetryLaterException("Could not connect", 15000, e);
+        // Get the current state
+        MongodbBackend queries = state.queries;
+        PhaseTimer readTimer = PhaseTimer.start(getDatabaseType(), configFile, queries.getConnection().getServer(), ManageMetrics.PHASE_READ_SNAPSHOT);
+        List<String> currentDatabases = desiredDatabases == null ? null : queries.databasesListNonSystem();
+        List<MongodbFlatRole> currentRoles = desiredRoles == null ? null : queries.rolesList();
+        List<MongodbManagerConfigUserAndRoles> currentUsersAndRoles = desiredUsersAndRoles == null ? null : queries.usersList();
+        if (changedRoles != null) {
+            currentRoles = ConfigDeltaTools.filterByKeys(currentRoles, changedRoles, MongodbManageProcess::toRoleKey);
         }
+        if (changedUsers != null) {
+            currentUsersAndRoles = ConfigDeltaTools.filterByKeys(currentUsersAndRoles, changedUsers, MongodbManageProcess::toUserKey);
+        }
+        readTimer.stop();
+
+        // Plan the changes
+        PhaseTimer planTimer = PhaseTimer.start(getDatabaseType(), configFile, queries.getConnection().getServer(), ManageMetrics.PHASE_DIFF);
+        MongodbChangePlanner planner = new MongodbChangePlanner();
+        planner.planAllDatabases(currentDatabases, desiredDatabases);
+        planner.planAllRoles(currentRoles, desiredRoles);
+        planner.planAllUsersAndRoles(currentUsersAndRoles, mongodbManagerConfig.getUsersToIgnore(), desiredUsersAndRoles);
+        ChangePlan<MongodbChangeOperation> plan = planner.getPlan();
+        long planInMs = planTimer.stop();
+        logger.info("Planned {} operations in {} ms: {}", plan.getOperations().size(), planInMs, plan.countBy(MongodbChangeOperation::getType));
+        return plan;
+    }
 
+    /**
+     * Use other backends than the real servers (e.g. the simulators to load test the reconciliation). Must be set before starting.
+     *
+     * @param backendFactory
+     *            creates the backend of a server or null to use {@link MongodbQueries}
+     */
+    public void setBackendFactory(Function<JdbcUriConfigConnection, MongodbBackend> backendFactory) {
+        this.backendFactory = backendFactory;
     }
 
     @Override
-    public void run() {
-
-        ThreadNameStateTool threadNameStateTool = ThreadTools.nameThread() //
-                .clear() //
-                .setSeparator("-") //
-                .appendText("Manage") //
-                .appendText("MongoDB") //
-                .appendText(configFile) //
-                .change();
-        try {
-
-            // Check the config file changes when kept alive
-            if (keepAlive) {
-                logger.info("Start the file notifyer");
-                File config = new File(configFile);
-                @SuppressWarnings("resource")
-                OneFileUpdateNotifyer oneFileUpdateNotifyer = new OneFileUpdateNotifyer(config.getAbsolutePath(), fileName -> {
-                    logger.info("Config file changed. Update now");
-                    process.set(true);
-                });
-                oneFileUpdateNotifyer.initAutoUpdateSystem();
+    protected void stop() {
+        super.stop();
+        synchronized (stateByServer) {
+            if (driftCheck != null) {
+                driftCheck.cancel(false);
+                driftCheck = null;
             }
+        }
+        stateByServer.values().forEach(state -> {
+            if (state.queries != null) {
+                state.queries.close();
+            }
+        });
+        stateByServer.clear();
+    }
 
-            long lastExecution = 0;
-            boolean retry = true;
-            while (retry || keepAlive) {
-                retry = false;
-
-                // Wait 1 hours if keep alive
-                if (keepAlive) {
-                    long nextExecutionOn = lastExecution + 60 * 60 * 1000;
-
-                    if (!process.get()) {
-                        long waitFor = nextExecutionOn - System.currentTimeMillis();
-                        if (waitFor > 0) {
-                            logger.info("Wait for {}ms before the next execution", waitFor);
-                            while (waitFor > 0 && !process.get()) {
-                                ThreadTools.sleep(Math.min(waitFor, 5000));
-                                waitFor = nextExecutionOn - System.currentTimeMillis();
-                            }
-                            logger.info("End of wait");
-                        }
-                    }
-
-                }
+    private static String toRoleKey(MongodbFlatRole role) {
+        return role.getRoleName() + "@" + role.getRoleDatabase();
+    }
 
-                // Execute
-                try {
-                    process.set(false);
-                    lastExecution = System.currentTimeMillis();
-                    execute();
-
-                } catch (RetryLaterException e) {
-                    logger.warn("Problem managing: {}. Will retry in {} ms", e.getMessage(), e.getRetryInMs());
-                    retry = true;
-                    process.set(true);
-                    try {
-                        Thread.sleep(e.getRetryInMs());
-                    } catch (InterruptedException e1) {
-                    }
+    private static String toUserKey(MongodbManagerConfigUserAndRoles userAndRoles) {
+        return userAndRoles.getDatabase() + "." + userAndRoles.getName();
+    }
 
-                } catch (Exception e) {
-                    logger.error("Problem managing", e);
-                    if (!keepAlive) {
-                        throw new ProblemException("Killing the process");
-                    }
-                }
+    /**
+     * Start, restart or stop the drift check when its interval changes.
+     *
+     * @param intervalInMs
+     *            the interval from the config or null to not check
+     */
+    private void updateDriftCheck(Long intervalInMs) {
+        synchronized (stateByServer) {
+            if (Objects.equals(driftCheckIntervalInMs, intervalInMs)) {
+                return;
             }
-
-        } finally {
-            logger.info("End of manager");
-            if (threadNameStateTool != null) {
-                threadNameStateTool.revert();
+            driftCheckIntervalInMs = intervalInMs;
+            if (driftCheck != null) {
+                driftCheck.cancel(false);
+                driftCheck = null;
+            }
+            if (intervalInMs != null) {
+                driftCheck = getScheduler().scheduleWithFixedDelay(this::checkDrift, intervalInMs);
             }
         }
-
     }
 
 }
@@ -25,7 +25,10 @@ import com.foilen.smalltools.tools.CollectionsTools;
 public class MongodbManagerConfig extends AbstractBasics {
 
     private JdbcUriConfigConnection connection = new JdbcUriConfigConnection();
+    private List<JdbcUriConfigConnection> connections = new ArrayList<>();
+    private Long driftCheckIntervalInMs = null;
     private List<String> databases = null;
+    private Long refreshIntervalInMs = null;
     private List<MongodbManagerConfigUser> usersToIgnore = null;
 
     private Map<String, List<String>> globalClusterRoles = null;
@@ -38,10 +41,23 @@ public class MongodbManagerConfig extends AbstractBasics {
         return connection;
     }
 
+    public List<JdbcUriConfigConnection> getConnections() {
+        return connections;
+    }
+
     public List<String> getDatabases() {
         return databases;
     }
 
+    /**
+     * When kept alive, how often to check if the users or roles were changed directly on the server. Null to only check on the full reconcile.
+     *
+     * @return the interval
+     */
+    public Long getDriftCheckIntervalInMs() {
+        return driftCheckIntervalInMs;
+    }
+
     public Map<String, List<String>> getGlobalClusterRoles() {
         return globalClusterRoles;
     }
@@ -61,6 +77,10 @@ public class MongodbManagerConfig extends AbstractBasics {
         return flatRole;
     }
 
+    public Long getRefreshIntervalInMs() {
+        return refreshIntervalInMs;
+    }
+
     public Map<String, Map<String, List<MongodbManagerConfigCollectionPrivilege>>> getRoleByDatabase() {
         return roleByDatabase;
     }
@@ -109,10 +129,18 @@ public class MongodbManagerConfig extends AbstractBasics {
         this.connection = connection;
     }
 
+    public void setConnections(List<JdbcUriConfigConnection> connections) {
+        this.connections = connections;
+    }
+
     public void setDatabases(List<String> databases) {
         this.databases = databases;
     }
 
+    public void setDriftCheckIntervalInMs(Long driftCheckIntervalInMs) {
+        this.driftCheckIntervalInMs = driftCheckIntervalInMs;
+    }
+
     public void setGlobalClusterRoles(Map<String, List<String>> globalClusterRoles) {
         this.globalClusterRoles = globalClusterRoles;
     }
@@ -121,6 +149,10 @@ public class MongodbManagerConfig extends AbstractBasics {
         this.globalDatabaseRoles = globalDatabaseRoles;
     }
 
+    public void setRefreshIntervalInMs(Long refreshIntervalInMs) {
+        this.refreshIntervalInMs = refreshIntervalInMs;
+    }
+
     public void setRoleByDatabase(Map<String, Map<String, List<MongodbManagerConfigCollectionPrivilege>>> roleByDatabase) {
         this.roleByDatabase = roleByDatabase;
     }
@@ -12,6 +12,8 @@ package com.foilen.databasetools.manage.mongodb;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.foilen.databasetools.manage.mongodb.model.MongodbScramCredential;
 import com.foilen.smalltools.tools.AbstractBasics;
 import com.google.common.collect.ComparisonChain;
 
@@ -22,6 +24,8 @@ public class MongodbManagerConfigUserAndRoles extends AbstractBasics implements
     private String password;
     private Map<String, List<String>> rolesByDatabase;
 
+    private Map<String, MongodbScramCredential> credentialsByMechanism;
+
     public MongodbManagerConfigUserAndRoles() {
     }
 
@@ -44,6 +48,16 @@ public class MongodbManagerConfigUserAndRoles extends AbstractBasics implements
                 .result();
     }
 
+    /**
+     * The SCRAM credentials stored on the server. Only available when retrieved from the server and never written in the config files.
+     *
+     * @return the credentials by mechanism
+     */
+    @JsonIgnore
+    public Map<String, MongodbScramCredential> getCredentialsByMechanism() {
+        return credentialsByMechanism;
+    }
+
     public String getDatabase() {
         return database;
     }
@@ -60,6 +74,11 @@ public class MongodbManagerConfigUserAndRoles extends AbstractBasics implements
         return rolesByDatabase;
     }
 
+    @JsonIgnore
+    public void setCredentialsByMechanism(Map<String, MongodbScramCredential> credentialsByMechanism) {
+        this.credentialsByMechanism = credentialsByMechanism;
+    }
+
     public void setDatabase(String database) {
         this.database = database;
     }
@@ -0,0 +1,119 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.mongodb.model.MongodbScramCredential;
+import com.google.common.io.BaseEncoding;
+
+public final class MongodbScramTools {
+
+    public static final String SCRAM_SHA_1 = "SCRAM-SHA-1";
+    public static final String SCRAM_SHA_256 = "SCRAM-SHA-256";
+
+    /**
+     * Compute the stored key of a SCRAM credential like the server does.
+     *
+     * @param mechanism
+     *            {@link #SCRAM_SHA_1} or {@link #SCRAM_SHA_256}
+     * @param user
+     *            the user name
+     * @param password
+     *            the password in clear text
+     * @param salt
+     *            the salt in base64
+     * @param iterationCount
+     *            the iteration count
+     * @return the stored key in base64
+     */
+    public static String computeStoredKey(String mechanism, String user, String password, String salt, int iterationCount) {
+        try {
+            String hashAlgorithm;
+            String hmacAlgorithm;
+            String pbkdf2Algorithm;
+            int keyLength;
+            String preparedPassword;
+            if (SCRAM_SHA_1.equals(mechanism)) {
+                hashAlgorithm = "SHA-1";
+                hmacAlgorithm = "HmacSHA1";
+                pbkdf2Algorithm = "PBKDF2WithHmacSHA1";
+                keyLength = 160;
+                // MongoDB uses the legacy MONGODB-CR digest as the password
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                preparedPassword = BaseEncoding.base16().lowerCase().encode(md5.digest((user + ":mongo:" + password).getBytes(StandardCharsets.UTF_8)));
+            } else if (SCRAM_SHA_256.equals(mechanism)) {
+                hashAlgorithm = "SHA-256";
+                hmacAlgorithm = "HmacSHA256";
+                pbkdf2Algorithm = "PBKDF2WithHmacSHA256";
+                keyLength = 256;
+                preparedPassword = password;
+            } else {
+                throw new ProblemException("Unsupported mechanism " + mechanism);
+            }
+
+            SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance(pbkdf2Algorithm);
+            byte[] saltedPassword = secretKeyFactory.generateSecret(new PBEKeySpec(preparedPassword.toCharArray(), Base64.getDecoder().decode(salt), iterationCount, keyLength)).getEncoded();
+
+            Mac hmac = Mac.getInstance(hmacAlgorithm);
+            hmac.init(new SecretKeySpec(saltedPassword, hmacAlgorithm));
+            byte[] clientKey = hmac.doFinal("Client Key".getBytes(StandardCharsets.UTF_8));
+            byte[] storedKey = MessageDigest.getInstance(hashAlgorithm).digest(clientKey);
+            return Base64.getEncoder().encodeToString(storedKey);
+        } catch (GeneralSecurityException e) {
+            throw new ProblemException("Could not compute the SCRAM stored key", e);
+        }
+    }
+
+    /**
+     * Check if the password is the one of the stored credentials. SCRAM-SHA-256 is checked when available since it is the strongest.
+     *
+     * @param user
+     *            the user name
+     * @param password
+     *            the password in clear text
+     * @param credentialsByMechanism
+     *            the credentials stored on the server
+     * @return true if it is the same password ; false if it is different or cannot be verified
+     */
+    public static boolean isSamePassword(String user, String password, Map<String, MongodbScramCredential> credentialsByMechanism) {
+
+        if (credentialsByMechanism == null) {
+            return false;
+        }
+
+        // SCRAM-SHA-256 uses SASLprep on the password which only keeps it as is when it is printable ASCII
+        String mechanism = SCRAM_SHA_256;
+        MongodbScramCredential credential = credentialsByMechanism.get(mechanism);
+        if (credential == null || !password.chars().allMatch(c -> c >= 0x20 && c < 0x7F)) {
+            mechanism = SCRAM_SHA_1;
+            credential = credentialsByMechanism.get(mechanism);
+        }
+        if (credential == null || credential.getSalt() == null || credential.getStoredKey() == null) {
+            return false;
+        }
+
+        return credential.getStoredKey().equals(computeStoredKey(mechanism, user, password, credential.getSalt(), credential.getIterationCount()));
+    }
+
+    private MongodbScramTools() {
+    }
+
+}
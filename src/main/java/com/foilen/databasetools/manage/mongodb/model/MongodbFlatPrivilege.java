@@ -25,6 +25,9 @@ public class MongodbFlatPrivilege extends AbstractBasics implements Comparable<M
 
     private List<String> actions = new ArrayList<>();
 
+    public MongodbFlatPrivilege() {
+    }
+
     public MongodbFlatPrivilege(String database, String collection, Boolean cluster, List<String> actions) {
         this.database = database;
         this.collection = collection;
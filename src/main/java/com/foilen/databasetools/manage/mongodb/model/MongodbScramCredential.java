@@ -0,0 +1,53 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb.model;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+public class MongodbScramCredential extends AbstractBasics {
+
+    private int iterationCount;
+    private String salt;
+    private String storedKey;
+
+    public MongodbScramCredential() {
+    }
+
+    public MongodbScramCredential(int iterationCount, String salt, String storedKey) {
+        this.iterationCount = iterationCount;
+        this.salt = salt;
+        this.storedKey = storedKey;
+    }
+
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    public String getSalt() {
+        return salt;
+    }
+
+    public String getStoredKey() {
+        return storedKey;
+    }
+
+    public void setIterationCount(int iterationCount) {
+        this.iterationCount = iterationCount;
+    }
+
+    public void setSalt(String salt) {
+        this.salt = salt;
+    }
+
+    public void setStoredKey(String storedKey) {
+        this.storedKey = storedKey;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.plan;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter to avoid retrying all at the same time.
+ */
+public final class BackoffTools {
+
+    /**
+     * Get how long to wait before the next attempt. It doubles at each attempt, up to the maximum, and a random half of it is removed.
+     *
+     * @param initialDelayInMs
+     *            the delay before the first retry
+     * @param attempt
+     *            the amount of attempts that already failed (starting at 0)
+     * @param maxDelayInMs
+     *            the maximum delay
+     * @return the delay
+     */
+    public static long computeDelayInMs(long initialDelayInMs, int attempt, long maxDelayInMs) {
+        long delayInMs = initialDelayInMs;
+        for (int i = 0; i < attempt && delayInMs < maxDelayInMs; ++i) {
+            delayInMs *= 2;
+        }
+        delayInMs = Math.min(delayInMs, maxDelayInMs);
+
+        long half = delayInMs / 2;
+        return half + ThreadLocalRandom.current().nextLong(delayInMs - half + 1);
+    }
+
+    private BackoffTools() {
+    }
+
+}
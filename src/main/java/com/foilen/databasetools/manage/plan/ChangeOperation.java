@@ -0,0 +1,39 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.plan;
+
+/**
+ * One change to apply on a server.
+ */
+public interface ChangeOperation {
+
+    /**
+     * Tells which other operations must be done before this one.
+     *
+     * @return the key of the items this operation modifies (e.g the user). The operations with the same key are applied in order. Null when it does not depend on other operations of the same phase
+     */
+    String orderingKey();
+
+    /**
+     * All the operations of a lower phase are applied before any operation of a higher phase.
+     *
+     * @return the phase
+     */
+    int phase();
+
+    /**
+     * Tells if the operation can be attempted again right away when it fails with a transient error. The operations that are not are still safe to apply again when resuming the remaining
+     * plan, but only after the server had time to recover.
+     *
+     * @return true to retry in place
+     */
+    boolean retryable();
+
+}
@@ -0,0 +1,75 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.plan;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * The list of changes to apply to make the current state of a server the desired one.
+ *
+ * @param <O>
+ *            the type of operations
+ */
+public class ChangePlan<O extends ChangeOperation> extends AbstractBasics {
+
+    private List<O> operations = new ArrayList<>();
+
+    public ChangePlan<O> add(O operation) {
+        operations.add(operation);
+        return this;
+    }
+
+    /**
+     * Count the operations.
+     *
+     * @param keyFunction
+     *            how to group the operations (e.g by type)
+     * @param <K>
+     *            the type of key
+     * @return the count by key
+     */
+    public <K extends Comparable<K>> Map<K, Long> countBy(Function<O, K> keyFunction) {
+        return operations.stream().collect(Collectors.groupingBy(keyFunction, TreeMap::new, Collectors.counting()));
+    }
+
+    public List<O> getOperations() {
+        return operations;
+    }
+
+    public boolean hasOperations() {
+        return !operations.isEmpty();
+    }
+
+    public void setOperations(List<O> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Get the operations grouped by phase. The order inside a phase is kept.
+     *
+     * @return the operations of each phase, the lowest phase first
+     */
+    public List<List<O>> toPhases() {
+        return operations.stream() //
+                .sorted(Comparator.comparingInt(ChangeOperation::phase)) //
+                .collect(Collectors.groupingBy(ChangeOperation::phase, TreeMap::new, Collectors.toList())) //
+                .values().stream() //
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * Apply a plan phase by phase. Inside a phase, the operations with the same ordering key are applied in order by the same worker and the different keys are spread on up to "parallelism" workers.
+ * An operation that is {@link ChangeOperation#retryable()} and fails with a retryable exception is retried alone right away. There is no waiting between the attempts to not hold a worker: when the execution fails anyway,
+ * {@link #getRemainingPlan(ChangePlan)} gives the operations that were not applied to resume later, after the backoff of the process. When an operation fails, the other workers do not start new operations and the execution waits for the ones in progress to complete
+ * before failing, so that they are not part of the remaining plan once applied.
+ *
+ * @param <O>
+ *            the type of operations
+ */
+public class ChangePlanExecutor<O extends ChangeOperation> extends AbstractBasics {
+
+    private int parallelism;
+    private Consumer<O> applier;
+
+    private String threadNamePrefix = "Apply";
+
+    private int maxAttempts = 1;
+    private Predicate<RuntimeException> retryable = e -> false;
+
+    private final Set<O> appliedOperations = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    public ChangePlanExecutor(int parallelism, Consumer<O> applier) {
+        this.parallelism = Math.max(1, parallelism);
+        this.applier = applier;
+    }
+
+    private void apply(O operation) {
+        for (int attempt = 1;; ++attempt) {
+            try {
+                applier.accept(operation);
+                appliedOperations.add(operation);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !operation.retryable() || !retryable.test(e)) {
+                    throw e;
+                }
+                logger.warn("Operation {} failed ({}). Attempt {}/{}. Retrying", operation, e.getMessage(), attempt, maxAttempts);
+            }
+        }
+    }
+
+    private void awaitTermination(ExecutorService executorService) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+                logger.info("Waiting for the operations in progress to complete");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void execute(ChangePlan<O> plan) {
+
+        if (!plan.hasOperations()) {
+            logger.info("Nothing to apply");
+            return;
+        }
+
+        logger.info("Apply {} operations with a parallelism of {}", plan.getOperations().size(), parallelism);
+        if (parallelism == 1) {
+            plan.toPhases().forEach(operations -> operations.forEach(this::apply));
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, threadNamePrefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean stopping = new AtomicBoolean();
+        try {
+            for (List<O> operations : plan.toPhases()) {
+
+                // Group by ordering key
+                List<List<O>> groups = new ArrayList<>();
+                Map<String, List<O>> groupByOrderingKey = new LinkedHashMap<>();
+                for (O operation : operations) {
+                    String orderingKey = operation.orderingKey();
+                    if (orderingKey == null) {
+                        List<O> group = new ArrayList<>();
+                        group.add(operation);
+                        groups.add(group);
+                    } else {
+                        List<O> group = groupByOrderingKey.get(orderingKey);
+                        if (group == null) {
+                            group = new ArrayList<>();
+                            groupByOrderingKey.put(orderingKey, group);
+                            groups.add(group);
+                        }
+                        group.add(operation);
+                    }
+                }
+
+                // Apply the phase
+                List<Future<?>> futures = new ArrayList<>();
+                groups.forEach(group -> futures.add(executorService.submit(() -> {
+                    for (O operation : group) {
+                        if (stopping.get()) {
+                            return;
+                        }
+                        try {
+                            apply(operation);
+                        } catch (RuntimeException e) {
+                            stopping.set(true);
+                            throw e;
+                        }
+                    }
+                })));
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) e.getCause();
+                        }
+                        throw new ProblemException("Problem applying an operation", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ProblemException("Interrupted while applying the operations", e);
+                    }
+                }
+            }
+        } finally {
+            // Let the operations in progress complete (an interrupted statement could still be applied) before giving the remaining plan
+            stopping.set(true);
+            executorService.shutdown();
+            awaitTermination(executorService);
+        }
+
+    }
+
+    /**
+     * Get the operations of the plan that were not applied (yet), in the same order.
+     *
+     * @param plan
+     *            the plan that was executed
+     * @return the remaining plan
+     */
+    public ChangePlan<O> getRemainingPlan(ChangePlan<O> plan) {
+        ChangePlan<O> remainingPlan = new ChangePlan<>();
+        plan.getOperations().stream() //
+                .filter(operation -> !appliedOperations.contains(operation)) //
+                .forEach(remainingPlan::add);
+        return remainingPlan;
+    }
+
+    /**
+     * Retry the operations that fail with a retryable exception.
+     *
+     * @param maxAttempts
+     *            the maximum amount of attempts for one operation
+     * @param retryable
+     *            tells which exceptions can be retried
+     * @return this
+     */
+    public ChangePlanExecutor<O> setRetry(int maxAttempts, Predicate<RuntimeException> retryable) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryable = retryable;
+        return this;
+    }
+
+    /**
+     * Name the workers to know in the thread dumps and the logs what they are applying.
+     *
+     * @param threadNamePrefix
+     *            the start of the name of the workers (e.g. "Apply-" + server). A counter is added to it
+     * @return this
+     */
+    public ChangePlanExecutor<O> setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+        return this;
+    }
+
+}
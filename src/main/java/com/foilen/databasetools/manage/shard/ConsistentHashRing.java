@@ -0,0 +1,72 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Assign keys to members so that adding or removing a member only moves the keys it gains or loses. Each member is placed many times on the ring to spread the keys evenly.
+ */
+public class ConsistentHashRing {
+
+    public static final int VIRTUAL_NODES_PER_MEMBER = 100;
+
+    private final SortedSet<String> members;
+    private final TreeMap<Long, String> memberByHash = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> members) {
+        this.members = Collections.unmodifiableSortedSet(new TreeSet<>(members));
+        for (String member : this.members) {
+            for (int i = 0; i < VIRTUAL_NODES_PER_MEMBER; ++i) {
+                memberByHash.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    public SortedSet<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * Get the member that owns a key.
+     *
+     * @param key
+     *            the key
+     * @return the member or null if there are no members
+     */
+    public String getOwner(String key) {
+        if (memberByHash.isEmpty()) {
+            return null;
+        }
+        Entry<Long, String> entry = memberByHash.ceilingEntry(hash(key));
+        if (entry == null) {
+            entry = memberByHash.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    private static long hash(String value) {
+        return Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+
+    @Override
+    public String toString() {
+        return members.toString();
+    }
+
+}
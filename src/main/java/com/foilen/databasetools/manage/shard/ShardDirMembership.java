@@ -0,0 +1,186 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.shard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.ManageScheduler;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.ThreadTools;
+
+/**
+ * Find the other instances sharing the same directory. Each instance keeps a lock file named after its id in the directory and touches it at every heartbeat. The lock files that
+ * were not touched for {@link #STALE_HEARTBEATS} heartbeats are from instances that left (or crashed) and are removed. Every time the members change, a new
+ * {@link ConsistentHashRing} is given to the listener.
+ *
+ * A joining instance waits one heartbeat before giving its first ring to let the other instances see it and release what it will own. When the directory cannot be updated for
+ * almost as long as the other instances take to consider this one gone, the listener gets a null ring: this instance must not own anything until it works again.
+ */
+public class ShardDirMembership extends AbstractBasics implements Closeable {
+
+    public static final int STALE_HEARTBEATS = 3;
+
+    private static final String LOCK_EXTENSION = ".lock";
+
+    private final Path shardDir;
+    private final String instanceId;
+    private final ManageScheduler scheduler;
+    private final long heartbeatIntervalInMs;
+    private final Consumer<ConsistentHashRing> onChange;
+
+    private final Path lockFile;
+
+    // Guarded by this
+    private ScheduledFuture<?> heartbeat;
+    private long startedOn;
+    private long lastHeartbeatOn;
+    private ConsistentHashRing ring;
+
+    public ShardDirMembership(String shardDir, String instanceId, ManageScheduler scheduler, long heartbeatIntervalInMs, Consumer<ConsistentHashRing> onChange) {
+        this.shardDir = Paths.get(shardDir).toAbsolutePath();
+        this.instanceId = toSafeId(instanceId);
+        this.scheduler = scheduler;
+        this.heartbeatIntervalInMs = heartbeatIntervalInMs;
+        this.onChange = onChange;
+        this.lockFile = this.shardDir.resolve(this.instanceId + LOCK_EXTENSION);
+    }
+
+    /**
+     * Stop the heartbeats and remove the lock file to let the other instances take over right away.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+                heartbeat = null;
+            }
+        }
+        try {
+            Files.deleteIfExists(lockFile);
+        } catch (IOException e) {
+            logger.warn("Could not remove the lock file {}", lockFile, e);
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Get the current ring.
+     *
+     * @return the ring or null when the members are not known (yet)
+     */
+    public synchronized ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Touch the lock file of this instance and check the members.
+     */
+    private void heartbeat() {
+        long now = System.currentTimeMillis();
+        Set<String> members = new TreeSet<>();
+        try {
+            if (!Files.exists(lockFile)) {
+                Files.write(lockFile, instanceId.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.setLastModifiedTime(lockFile, FileTime.fromMillis(now));
+            members.add(instanceId);
+
+            long staleBefore = now - STALE_HEARTBEATS * heartbeatIntervalInMs;
+            try (Stream<Path> list = Files.list(shardDir)) {
+                list.filter(file -> file.getFileName().toString().endsWith(LOCK_EXTENSION)).forEach(file -> {
+                    String fileName = file.getFileName().toString();
+                    String member = fileName.substring(0, fileName.length() - LOCK_EXTENSION.length());
+                    try {
+                        if (Files.getLastModifiedTime(file).toMillis() >= staleBefore) {
+                            members.add(member);
+                        } else if (!member.equals(instanceId)) {
+                            logger.info("The instance {} stopped its heartbeats. Removing it", member);
+                            Files.deleteIfExists(file);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Could not check the lock file {}", file, e);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            logger.warn("Could not update the membership in {}: {}", shardDir, e.getMessage());
+            synchronized (this) {
+                if (heartbeat == null || ring == null || now - lastHeartbeatOn < (STALE_HEARTBEATS - 1) * heartbeatIntervalInMs) {
+                    return;
+                }
+                ring = null;
+            }
+            logger.error("Could not update the membership for too long. Not owning anything until it works again");
+            onChange.accept(null);
+            return;
+        }
+
+        ConsistentHashRing newRing;
+        synchronized (this) {
+            lastHeartbeatOn = now;
+            if (heartbeat == null || now - startedOn < heartbeatIntervalInMs || (ring != null && ring.getMembers().equals(members))) {
+                return;
+            }
+            newRing = new ConsistentHashRing(members);
+            ring = newRing;
+        }
+        logger.info("The members changed: {}", members);
+        onChange.accept(newRing);
+    }
+
+    /**
+     * Create the lock file, wait one heartbeat to let the other instances see this one, find the current members and keep the heartbeats going. The first ring is then available with
+     * {@link #getRing()} (null if the directory could not be read).
+     */
+    public void start() {
+        logger.info("Joining the members in {} as {}", shardDir, instanceId);
+        try {
+            Files.createDirectories(shardDir);
+        } catch (IOException e) {
+            throw new ProblemException("Could not create the shard directory " + shardDir, e);
+        }
+        synchronized (this) {
+            startedOn = System.currentTimeMillis();
+            heartbeat = scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalInMs);
+        }
+        heartbeat();
+        ThreadTools.sleep(heartbeatIntervalInMs);
+        heartbeat();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "ShardDirMembership-close"));
+    }
+
+    /**
+     * Make an instance id safe to use as a file name.
+     *
+     * @param instanceId
+     *            the instance id
+     * @return the safe id
+     */
+    public static String toSafeId(String instanceId) {
+        return instanceId.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A log-linear histogram of latencies in microseconds (like the HDR histograms). Each power of 2 is split in {@link #SUB_BUCKETS} linear buckets, which keeps the error under 7%
+ * from 1 microsecond to hours with less than 1000 counters. Recording is lock free.
+ */
+public class LatencyHistogram {
+
+    public static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS + 1);
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param valueInUs
+     *            the value
+     * @return the index of the bucket
+     */
+    static int bucketIndex(long valueInUs) {
+        if (valueInUs < SUB_BUCKETS) {
+            return (int) Math.max(0, valueInUs);
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(valueInUs);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int group = shift + 1;
+        int subBucket = (int) (valueInUs >>> shift) - SUB_BUCKETS;
+        return group * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the highest value that goes in a bucket.
+     *
+     * @param bucketIndex
+     *            the index of the bucket
+     * @return the highest value
+     */
+    static long bucketUpperBound(int bucketIndex) {
+        int group = bucketIndex / SUB_BUCKETS;
+        int subBucket = bucketIndex % SUB_BUCKETS;
+        if (group == 0) {
+            return subBucket;
+        }
+        int shift = group - 1;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    private final AtomicLongArray countByBucket = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumInUs = new LongAdder();
+    private final LongAccumulator maxInUs = new LongAccumulator(Math::max, 0);
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxInUs() {
+        return maxInUs.get();
+    }
+
+    public long getMeanInUs() {
+        long count = getCount();
+        return count == 0 ? 0 : sumInUs.sum() / count;
+    }
+
+    /**
+     * Get the value under which a percentage of the values are.
+     *
+     * @param percentile
+     *            the percentile (e.g. 99.0)
+     * @return the value in microseconds (the highest value of its bucket) or 0 if empty
+     */
+    public long getValueAtPercentileInUs(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += countByBucket.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long wanted = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            cumulative += countByBucket.get(i);
+            if (cumulative >= wanted) {
+                return Math.min(bucketUpperBound(i), getMaxInUs());
+            }
+        }
+        return getMaxInUs();
+    }
+
+    public void record(long valueInUs) {
+        countByBucket.incrementAndGet(bucketIndex(valueInUs));
+        count.increment();
+        sumInUs.add(valueInUs);
+        maxInUs.accumulate(valueInUs);
+    }
+
+    /**
+     * Move all the values to a new histogram. The values recorded during the move can end up in either one.
+     *
+     * @return the histogram with the values that were in this one
+     */
+    public LatencyHistogram snapshotAndReset() {
+        LatencyHistogram snapshot = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; ++i) {
+            long bucketCount = countByBucket.getAndSet(i, 0);
+            if (bucketCount > 0) {
+                snapshot.countByBucket.set(i, bucketCount);
+            }
+        }
+        snapshot.count.add(count.sumThenReset());
+        snapshot.sumInUs.add(sumInUs.sumThenReset());
+        snapshot.maxInUs.accumulate(maxInUs.getThenReset());
+        return snapshot;
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * The metrics of the manage processes in the Prometheus text format:
+ * <ul>
+ * <li>databasetools_reconcile_phase_duration_seconds: how long each phase of the reconcile took (load_config, read_snapshot, diff, apply);</li>
+ * <li>databasetools_statements_total: the statements and commands sent to the servers by type;</li>
+ * <li>databasetools_retries_total: the executions of a config file that asked to be retried;</li>
+ * <li>databasetools_last_success_timestamp_seconds: when a config file was last applied successfully on a server;</li>
+ * <li>databasetools_queue_depth: the executions that are ready, but waiting for a free worker.</li>
+ * </ul>
+ */
+public final class ManageMetrics {
+
+    public static final String PHASE_APPLY = "apply";
+    public static final String PHASE_DIFF = "diff";
+    public static final String PHASE_LOAD_CONFIG = "load_config";
+    public static final String PHASE_READ_SNAPSHOT = "read_snapshot";
+
+    private static final String METRIC_LAST_SUCCESS = "databasetools_last_success_timestamp_seconds";
+    private static final String METRIC_PHASE_DURATION = "databasetools_reconcile_phase_duration_seconds";
+    private static final String METRIC_QUEUE_DEPTH = "databasetools_queue_depth";
+    private static final String METRIC_RETRIES = "databasetools_retries_total";
+    private static final String METRIC_STATEMENTS = "databasetools_statements_total";
+
+    private static final double[] DURATION_BUCKETS_IN_SECONDS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300 };
+
+    private static class Histogram {
+
+        private final LongAdder[] countByBucket = new LongAdder[DURATION_BUCKETS_IN_SECONDS.length];
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram() {
+            for (int i = 0; i < countByBucket.length; ++i) {
+                countByBucket[i] = new LongAdder();
+            }
+        }
+
+        private void observe(double value) {
+            for (int i = 0; i < DURATION_BUCKETS_IN_SECONDS.length; ++i) {
+                if (value <= DURATION_BUCKETS_IN_SECONDS[i]) {
+                    countByBucket[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(value);
+        }
+
+    }
+
+    private static final Map<String, Histogram> phaseDurationByLabels = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> statementsByLabels = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> retriesByLabels = new ConcurrentSkipListMap<>();
+    private static final Map<String, Double> lastSuccessByLabels = new ConcurrentSkipListMap<>();
+
+    private static volatile IntSupplier queueDepthSupplier;
+
+    private static void appendHeader(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(StringBuilder text, String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Count an execution that asked to be retried.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param configFile
+     *            the config file
+     */
+    public static void incrementRetries(String databaseType, String configFile) {
+        retriesByLabels.computeIfAbsent(labels("database_type", databaseType, "config", configFile), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Count a statement or a command sent to a server.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param type
+     *            the type of statement (e.g. "GRANT") or the name of the command (e.g. "createUser")
+     */
+    public static void incrementStatements(String databaseType, String type) {
+        statementsByLabels.computeIfAbsent(labels("database_type", databaseType, "type", type), k -> new LongAdder()).increment();
+    }
+
+    private static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            String value = namesAndValues[i + 1] == null ? "" : namesAndValues[i + 1];
+            labels.append(namesAndValues[i]).append("=\"") //
+                    .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")) //
+                    .append('"');
+        }
+        return labels.toString();
+    }
+
+    /**
+     * Record how long a phase of the reconcile took.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param phase
+     *            one of the PHASE_* constants
+     * @param startInMs
+     *            when the phase started
+     */
+    public static void observePhase(String databaseType, String phase, long startInMs) {
+        double durationInSeconds = (System.currentTimeMillis() - startInMs) / 1000.0;
+        phaseDurationByLabels.computeIfAbsent(labels("database_type", databaseType, "phase", phase), k -> new Histogram()).observe(durationInSeconds);
+    }
+
+    /**
+     * Record that a config file was applied successfully on a server.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param configFile
+     *            the config file
+     * @param server
+     *            the server
+     */
+    public static void setLastSuccess(String databaseType, String configFile, String server) {
+        lastSuccessByLabels.put(labels("database_type", databaseType, "config", configFile, "server", server), System.currentTimeMillis() / 1000.0);
+    }
+
+    public static void setQueueDepthSupplier(IntSupplier queueDepthSupplier) {
+        ManageMetrics.queueDepthSupplier = queueDepthSupplier;
+    }
+
+    /**
+     * Export all the metrics.
+     *
+     * @return the metrics in the Prometheus text format (version 0.0.4)
+     */
+    public static String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+
+        appendHeader(text, METRIC_PHASE_DURATION, "histogram", "How long each phase of the reconcile took");
+        phaseDurationByLabels.forEach((labels, histogram) -> {
+            long cumulativeCount = 0;
+            for (int i = 0; i < DURATION_BUCKETS_IN_SECONDS.length; ++i) {
+                cumulativeCount += histogram.countByBucket[i].sum();
+                appendSample(text, METRIC_PHASE_DURATION + "_bucket", labels + "," + labels("le", String.valueOf(DURATION_BUCKETS_IN_SECONDS[i])), cumulativeCount);
+            }
+            appendSample(text, METRIC_PHASE_DURATION + "_bucket", labels + "," + labels("le", "+Inf"), histogram.count.sum());
+            appendSample(text, METRIC_PHASE_DURATION + "_sum", labels, histogram.sum.sum());
+            appendSample(text, METRIC_PHASE_DURATION + "_count", labels, histogram.count.sum());
+        });
+
+        appendHeader(text, METRIC_STATEMENTS, "counter", "The statements and commands sent to the servers");
+        statementsByLabels.forEach((labels, count) -> appendSample(text, METRIC_STATEMENTS, labels, count.sum()));
+
+        appendHeader(text, METRIC_RETRIES, "counter", "The executions of a config file that asked to be retried");
+        retriesByLabels.forEach((labels, count) -> appendSample(text, METRIC_RETRIES, labels, count.sum()));
+
+        appendHeader(text, METRIC_LAST_SUCCESS, "gauge", "When a config file was last applied successfully on a server");
+        lastSuccessByLabels.forEach((labels, timestamp) -> appendSample(text, METRIC_LAST_SUCCESS, labels, timestamp));
+
+        IntSupplier queueDepthSupplier = ManageMetrics.queueDepthSupplier;
+        if (queueDepthSupplier != null) {
+            appendHeader(text, METRIC_QUEUE_DEPTH, "gauge", "The executions that are ready, but waiting for a free worker");
+            appendSample(text, METRIC_QUEUE_DEPTH, "", queueDepthSupplier.getAsInt());
+        }
+
+        return text.toString();
+    }
+
+    private ManageMetrics() {
+    }
+
+}
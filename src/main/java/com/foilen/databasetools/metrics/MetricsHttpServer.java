@@ -0,0 +1,78 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serve the {@link ManageMetrics} on "/metrics" for Prometheus.
+ */
+public class MetricsHttpServer extends AbstractBasics implements Closeable {
+
+    private final int port;
+
+    private HttpServer httpServer;
+
+    public MetricsHttpServer(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    public int getPort() {
+        return httpServer == null ? port : httpServer.getAddress().getPort();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = ManageMetrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Start serving.
+     *
+     * @return this
+     */
+    public MetricsHttpServer start() {
+        logger.info("Serving the metrics on port {}", port);
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new ProblemException("Could not serve the metrics on port " + port, e);
+        }
+        httpServer.createContext("/metrics", this::handleMetrics);
+        httpServer.start();
+        return this;
+    }
+
+}
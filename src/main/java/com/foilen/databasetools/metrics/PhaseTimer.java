@@ -0,0 +1,90 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import com.foilen.databasetools.metrics.jfr.AbstractReconcileEvent;
+import com.foilen.databasetools.metrics.jfr.ApplyEvent;
+import com.foilen.databasetools.metrics.jfr.ConfigLoadEvent;
+import com.foilen.databasetools.metrics.jfr.DiffEvent;
+import com.foilen.databasetools.metrics.jfr.SnapshotReadEvent;
+
+/**
+ * Time a phase of the reconcile for the {@link ManageMetrics} and as a Flight Recorder event. The event is only filled when it is recorded.
+ */
+public class PhaseTimer {
+
+    /**
+     * Start timing a phase.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param configFile
+     *            the config file
+     * @param server
+     *            the server or null when the phase is for all the servers
+     * @param phase
+     *            one of the ManageMetrics.PHASE_* constants
+     * @return the timer
+     */
+    public static PhaseTimer start(String databaseType, String configFile, String server, String phase) {
+        return new PhaseTimer(databaseType, configFile, server, phase);
+    }
+
+    private final String databaseType;
+    private final String configFile;
+    private final String server;
+    private final String phase;
+
+    private final long startInMs = System.currentTimeMillis();
+    private final AbstractReconcileEvent event;
+
+    private PhaseTimer(String databaseType, String configFile, String server, String phase) {
+        this.databaseType = databaseType;
+        this.configFile = configFile;
+        this.server = server;
+        this.phase = phase;
+
+        switch (phase) {
+        case ManageMetrics.PHASE_APPLY:
+            event = new ApplyEvent();
+            break;
+        case ManageMetrics.PHASE_DIFF:
+            event = new DiffEvent();
+            break;
+        case ManageMetrics.PHASE_LOAD_CONFIG:
+            event = new ConfigLoadEvent();
+            break;
+        case ManageMetrics.PHASE_READ_SNAPSHOT:
+            event = new SnapshotReadEvent();
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+        event.begin();
+    }
+
+    /**
+     * Stop timing the phase.
+     *
+     * @return how long it took in ms
+     */
+    public long stop() {
+        event.end();
+        if (event.shouldCommit()) {
+            event.databaseType = databaseType;
+            event.configFile = configFile;
+            event.server = server;
+            event.commit();
+        }
+        ManageMetrics.observePhase(databaseType, phase, startInMs);
+        return System.currentTimeMillis() - startInMs;
+    }
+
+}
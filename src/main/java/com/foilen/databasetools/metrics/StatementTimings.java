@@ -0,0 +1,168 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.foilen.databasetools.metrics.jfr.DatabaseOperationEvent;
+
+/**
+ * Time the statements and commands sent to the servers. Each one is recorded in a {@link LatencyHistogram} per type of database, server and operation, counted in the
+ * {@link ManageMetrics}, recorded as a {@link DatabaseOperationEvent} when Flight Recorder is on and logged as a slow statement when it takes longer than the threshold. The
+ * histograms are logged and reset periodically.
+ */
+public final class StatementTimings {
+
+    public static final long DEFAULT_SLOW_THRESHOLD_IN_MS = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementTimings.class);
+
+    private static final Map<String, LatencyHistogram> histogramByKey = new ConcurrentSkipListMap<>();
+
+    private static volatile long slowThresholdInMs = DEFAULT_SLOW_THRESHOLD_IN_MS;
+
+    private static void record(String databaseType, String server, String operation, String target, long startInNs, boolean failed) {
+        long elapsedInUs = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startInNs);
+        histogramByKey.computeIfAbsent(databaseType + " " + server + " " + operation, key -> new LatencyHistogram()).record(elapsedInUs);
+        ManageMetrics.incrementStatements(databaseType, operation);
+
+        long elapsedInMs = elapsedInUs / 1000;
+        if (elapsedInMs >= slowThresholdInMs) {
+            logger.warn("Slow statement. databaseType={} server={} operation={} target={} elapsedInMs={} failed={}", databaseType, server, operation, target, elapsedInMs, failed);
+        }
+    }
+
+    /**
+     * Change the time after which a statement is logged as slow.
+     *
+     * @param slowThresholdInMs
+     *            the threshold
+     */
+    public static void setSlowThresholdInMs(long slowThresholdInMs) {
+        StatementTimings.slowThresholdInMs = slowThresholdInMs;
+    }
+
+    /**
+     * Log the summary of the histograms and reset them periodically in a daemon thread.
+     *
+     * @param intervalInMs
+     *            the interval
+     */
+    public static void startSummary(long intervalInMs) {
+        new Timer("StatementTimings-summary", true).schedule(new TimerTask() {
+            @Override
+            public void run() {
+                String summary = toSummaryAndReset();
+                if (!summary.isEmpty()) {
+                    logger.info("Statements in the last {} ms (operation: count ; p50 / p90 / p99 / max in ms)\n{}", intervalInMs, summary);
+                }
+            }
+        }, intervalInMs, intervalInMs);
+    }
+
+    /**
+     * Time a statement.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param server
+     *            the server
+     * @param configFile
+     *            the config file the statement is for or null
+     * @param operation
+     *            the type of statement or the name of the command
+     * @param target
+     *            what it is about (e.g. the user or the database) for the slow statement log. Must not contain secrets
+     * @param statement
+     *            the statement
+     */
+    public static void time(String databaseType, String server, String configFile, String operation, String target, Runnable statement) {
+        time(databaseType, server, configFile, operation, target, () -> {
+            statement.run();
+            return null;
+        });
+    }
+
+    /**
+     * Time a statement.
+     *
+     * @param databaseType
+     *            the type of database
+     * @param server
+     *            the server
+     * @param configFile
+     *            the config file the statement is for or null
+     * @param operation
+     *            the type of statement or the name of the command
+     * @param target
+     *            what it is about (e.g. the user or the database) for the slow statement log. Must not contain secrets
+     * @param statement
+     *            the statement
+     * @param <T>
+     *            the type of result
+     * @return the result of the statement
+     */
+    public static <T> T time(String databaseType, String server, String configFile, String operation, String target, Supplier<T> statement) {
+        DatabaseOperationEvent event = new DatabaseOperationEvent();
+        event.begin();
+        long startInNs = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = statement.get();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.databaseType = databaseType;
+                event.server = server;
+                event.configFile = configFile;
+                event.operation = operation;
+                event.target = target;
+                event.failed = failed;
+                event.commit();
+            }
+            record(databaseType, server, operation, target, startInNs, failed);
+        }
+    }
+
+    /**
+     * Get the summary of all the histograms and reset them.
+     *
+     * @return one line per type of database, server and operation or an empty string when there was no statement
+     */
+    public static String toSummaryAndReset() {
+        StringBuilder summary = new StringBuilder();
+        histogramByKey.forEach((key, histogram) -> {
+            LatencyHistogram snapshot = histogram.snapshotAndReset();
+            if (snapshot.getCount() == 0) {
+                return;
+            }
+            summary.append(String.format("  %s: %d ; %.1f / %.1f / %.1f / %.1f%n", key, snapshot.getCount(), //
+                    snapshot.getValueAtPercentileInUs(50) / 1000.0, //
+                    snapshot.getValueAtPercentileInUs(90) / 1000.0, //
+                    snapshot.getValueAtPercentileInUs(99) / 1000.0, //
+                    snapshot.getMaxInUs() / 1000.0));
+        });
+        return summary.toString();
+    }
+
+    private StatementTimings() {
+    }
+
+}
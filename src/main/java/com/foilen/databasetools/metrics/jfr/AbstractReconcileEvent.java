@@ -0,0 +1,31 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The common fields of the Flight Recorder events of the reconciles.
+ */
+@Category({ "Database Tools", "Reconcile" })
+public abstract class AbstractReconcileEvent extends Event {
+
+    @Label("Database Type")
+    public String databaseType;
+
+    @Label("Config File")
+    public String configFile;
+
+    @Label("Server")
+    public String server;
+
+}
@@ -0,0 +1,42 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.foilen.databasetools.DatabaseOperation")
+@Label("Database Operation")
+@Description("A statement or a command sent to a server")
+@Category({ "Database Tools", "Database" })
+public class DatabaseOperationEvent extends Event {
+
+    @Label("Database Type")
+    public String databaseType;
+
+    @Label("Config File")
+    public String configFile;
+
+    @Label("Server")
+    public String server;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Target")
+    public String target;
+
+    @Label("Failed")
+    public boolean failed;
+
+}
@@ -0,0 +1,20 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.foilen.databasetools.SnapshotRead")
+@Label("Snapshot Read")
+@Description("Reading the current state of a server")
+public class SnapshotReadEvent extends AbstractReconcileEvent {
+}
@@ -0,0 +1,161 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.manage.mariadb.MariadbManagerConfigUserAndGrants;
+
+/**
+ * What the reconciliation reads from and changes on a MariaDB server. {@link MariadbQueries} talks to a real server.
+ */
+public interface MariadbBackend {
+
+    /**
+     * Create a database if it does not exist.
+     *
+     * @param database
+     *            the name of the database
+     */
+    void databaseCreate(String database);
+
+    /**
+     * Drop a database if it exists.
+     *
+     * @param database
+     *            the name of the database
+     */
+    void databaseDelete(String database);
+
+    /**
+     * List the databases that are not the system ones.
+     *
+     * @return the sorted names of the databases
+     */
+    List<String> databasesListNonSystem();
+
+    /**
+     * All the privileges that exist on a database. Known after {@link #usersList()}.
+     *
+     * @return the privileges
+     */
+    Set<String> getAllDatabasePrivileges();
+
+    /**
+     * The connection details of the server.
+     *
+     * @return the connection
+     */
+    JdbcUriConfigConnection getConnection();
+
+    /**
+     * Tell which config file the statements are for in the Flight Recorder events.
+     *
+     * @param configFile
+     *            the config file
+     */
+    void setConfigFile(String configFile);
+
+    /**
+     * Create a user if it does not exist.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     */
+    void userCreate(String user);
+
+    /**
+     * Drop a user if it exists.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     */
+    void userDelete(String user);
+
+    /**
+     * Change the password of a user.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     * @param password
+     *            the password in clear text
+     */
+    void userPasswordUpdate(String user, String password);
+
+    /**
+     * Change the password of a user.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     * @param hashedPassword
+     *            the native password hash
+     */
+    void userPasswordUpdateHash(String user, String hashedPassword);
+
+    /**
+     * Grant privileges on a database.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     * @param database
+     *            the database
+     * @param privileges
+     *            the privileges
+     */
+    void userPrivilegeDatabaseGrant(String user, String database, Collection<String> privileges);
+
+    /**
+     * Revoke privileges on a database.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     * @param database
+     *            the database
+     * @param privileges
+     *            the privileges
+     */
+    void userPrivilegeDatabaseRevoke(String user, String database, Collection<String> privileges);
+
+    /**
+     * Grant global privileges.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     * @param privileges
+     *            the privileges
+     */
+    void userPrivilegeGlobalGrant(String user, Collection<String> privileges);
+
+    /**
+     * Revoke global privileges.
+     *
+     * @param user
+     *            the full name of the user ('name'@'host')
+     * @param privileges
+     *            the privileges
+     */
+    void userPrivilegeGlobalRevoke(String user, Collection<String> privileges);
+
+    /**
+     * Reload the privileges.
+     */
+    void userPrivilegesFlush();
+
+    /**
+     * List the users with their password hash and grants.
+     *
+     * @return the sorted users
+     */
+    List<MariadbManagerConfigUserAndGrants> usersList();
+
+}
@@ -15,13 +15,16 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
@@ -29,48 +32,83 @@ import javax.sql.DataSource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
+import com.foilen.databasetools.connection.JdbcConnectionPoolConfig;
+import com.foilen.databasetools.connection.JdbcConnectionPools;
 import com.foilen.databasetools.connection.JdbcUriConfigConnection;
 import com.foilen.databasetools.manage.mariadb.MariadbManagerConfigUserAndGrants;
+import com.foilen.databasetools.metrics.StatementTimings;
 import com.foilen.smalltools.tools.AbstractBasics;
 import com.foilen.smalltools.tools.CollectionsTools;
+import com.foilen.smalltools.tuple.Tuple2;
+import com.google.common.base.Joiner;
 
-public class MariadbQueries extends AbstractBasics {
+public class MariadbQueries extends AbstractBasics implements MariadbBackend {
+
+    private static final String DATABASE_TYPE = "MariaDB";
 
     private static final Set<String> SYSTEM_DATABASES = new HashSet<>(Arrays.asList("information_schema", "mariadb", "mysql", "performance_schema", "sys"));
     private static final Map<String, String> GRANT_BY_BAD_GRANT = new HashMap<String, String>();
+    private static final String GRANT_OPTION = "GRANT";
 
     static {
         GRANT_BY_BAD_GRANT.put("CREATE TMP TABLE", "CREATE TEMPORARY TABLES");
     }
 
+    private JdbcUriConfigConnection configConnection;
     private JdbcTemplate jdbcTemplate;
     private DataSource dataSource;
+    private SnapshotCache snapshotCache;
+    private String server;
+    private String configFile;
+
+    private Set<String> allDatabasePrivileges = new TreeSet<>();
 
     public MariadbQueries(JdbcUriConfigConnection configConnection) {
+        this(configConnection, null);
+    }
+
+    public MariadbQueries(JdbcUriConfigConnection configConnection, JdbcConnectionPoolConfig connectionPoolConfig) {
         logger.info("Will use {}", configConnection);
-        DriverManagerDataSource dataSource = new DriverManagerDataSource(configConnection.getJdbcUri());
+        this.configConnection = configConnection;
+        DataSource dataSource = JdbcConnectionPools.getOrCreate(configConnection, connectionPoolConfig);
 
         jdbcTemplate = new JdbcTemplate(dataSource);
         this.dataSource = dataSource;
+        snapshotCache = SnapshotCache.get(configConnection);
+        server = configConnection.getServer();
     }
 
+    @Override
     public void databaseCreate(String database) {
         logger.info("Create database {}", database);
-        jdbcTemplate.update("CREATE DATABASE " + database);
+        update(database, "CREATE DATABASE IF NOT EXISTS " + database);
     }
 
+    @Override
     public void databaseDelete(String database) {
         logger.info("Delete database {}", database);
-        jdbcTemplate.update("DROP DATABASE " + database);
+        update(database, "DROP DATABASE IF EXISTS " + database);
     }
 
+    @Override
     public List<String> databasesListNonSystem() {
-        return jdbcTemplate.queryForList("SHOW DATABASES", String.class).stream() //
-                .filter(db -> !SYSTEM_DATABASES.contains(db)) //
-                .sorted() //
-                .collect(CollectionsTools.collectToArrayList());
+        return new ArrayList<>(snapshotCache.getOrLoad("databases", () -> {
+            return time("SHOW DATABASES", null, () -> jdbcTemplate.queryForList("SHOW DATABASES", String.class)).stream() //
+                    .filter(db -> !SYSTEM_DATABASES.contains(db)) //
+                    .sorted() //
+                    .collect(CollectionsTools.collectToArrayList());
+        }));
+    }
+
+    @Override
+    public Set<String> getAllDatabasePrivileges() {
+        return allDatabasePrivileges;
+    }
+
+    @Override
+    public JdbcUriConfigConnection getConnection() {
+        return configConnection;
     }
 
     private Map<String, String> getGrantByColumnName(ResultSet rs) throws SQLException {
@@ -103,60 +141,152 @@ public class MariadbQueries extends AbstractBasics {
         }
     }
 
+    @Override
+    public void setConfigFile(String configFile) {
+        this.configFile = configFile;
+    }
+
+    /**
+     * Time a statement on this server.
+     *
+     * @param operation
+     *            the type of statement
+     * @param target
+     *            what the statement is about for the slow statement log
+     * @param statement
+     *            the statement
+     * @param <T>
+     *            the type of result
+     * @return the result of the statement
+     */
+    private <T> T time(String operation, String target, Supplier<T> statement) {
+        return StatementTimings.time(DATABASE_TYPE, server, configFile, operation, target, statement);
+    }
+
+    /**
+     * Get the privileges as a comma separated list. When all the privileges of the scope are requested, use "ALL PRIVILEGES" instead.
+     *
+     * @param privileges
+     *            the privileges
+     * @param allPrivileges
+     *            all the privileges available on that scope or null if it must never be collapsed
+     * @return the SQL part
+     */
+    private String toPrivilegesSql(Collection<String> privileges, Set<String> allPrivileges) {
+        Set<String> sortedPrivileges = new TreeSet<>(privileges);
+        if (allPrivileges != null && !allPrivileges.isEmpty() && allPrivileges.equals(sortedPrivileges)) {
+            return "ALL PRIVILEGES";
+        }
+        return Joiner.on(", ").join(sortedPrivileges);
+    }
+
+    /**
+     * Get the type of statement for the metrics: the first word and the kind of object for the statements that create, drop or alter one (e.g. "CREATE USER").
+     *
+     * @param sql
+     *            the statement
+     * @return the type
+     */
+    private static String toStatementType(String sql) {
+        String[] words = sql.split(" ", 3);
+        switch (words[0]) {
+        case "ALTER":
+        case "CREATE":
+        case "DROP":
+        case "FLUSH":
+            return words.length > 1 ? words[0] + " " + words[1] : words[0];
+        default:
+            return words[0];
+        }
+    }
+
+    /**
+     * Update the server and forget the last reads.
+     *
+     * @param target
+     *            what the statement is about for the slow statement log
+     * @param sql
+     *            the statement
+     */
+    private void update(String target, String sql) {
+        try {
+            time(toStatementType(sql), target, () -> jdbcTemplate.update(sql));
+        } finally {
+            snapshotCache.invalidate();
+        }
+    }
+
+    @Override
     public void userCreate(String user) {
         logger.info("Create user {}", user);
-        jdbcTemplate.update("CREATE USER " + user);
+        update(user, "CREATE USER IF NOT EXISTS " + user);
     }
 
+    @Override
     public void userDelete(String user) {
         logger.info("Delete user {}", user);
-        jdbcTemplate.update("DROP USER " + user);
+        update(user, "DROP USER IF EXISTS " + user);
     }
 
+    @Override
     public void userPasswordUpdate(String user, String password) {
         logger.info("Update user password {}", user);
-        jdbcTemplate.update("ALTER USER " + user + "IDENTIFIED BY '" + password + "'");
+        update(user, "ALTER USER " + user + "IDENTIFIED BY '" + password + "'");
     }
 
+    @Override
     public void userPasswordUpdateHash(String user, String hashedPassword) {
         logger.info("Update user hashed password {}", user);
-        jdbcTemplate.update("ALTER USER " + user + "IDENTIFIED BY PASSWORD '" + hashedPassword + "'");
+        update(user, "ALTER USER " + user + "IDENTIFIED BY PASSWORD '" + hashedPassword + "'");
     }
 
-    public void userPrivilegeDatabaseGrant(String user, String database, String privilege) {
-        logger.info("Grant for user {} on database {} the privilege {}", user, database, privilege);
-        jdbcTemplate.update("GRANT " + privilege + " ON `" + database + "`.* TO " + user);
+    @Override
+    public void userPrivilegeDatabaseGrant(String user, String database, Collection<String> privileges) {
+        logger.info("Grant for user {} on database {} the privileges {}", user, database, privileges);
+        update(user + " on " + database, "GRANT " + toPrivilegesSql(privileges, allDatabasePrivileges) + " ON `" + database + "`.* TO " + user);
     }
 
-    public void userPrivilegeDatabaseRevoke(String user, String database, String privilege) {
-        logger.info("Revoke for user {} on database {} the privilege {}", user, database, privilege);
-        jdbcTemplate.update("REVOKE " + privilege + " ON `" + database + "`.* FROM " + user);
+    @Override
+    public void userPrivilegeDatabaseRevoke(String user, String database, Collection<String> privileges) {
+        logger.info("Revoke for user {} on database {} the privileges {}", user, database, privileges);
+        update(user + " on " + database, "REVOKE " + toPrivilegesSql(privileges, allDatabasePrivileges) + " ON `" + database + "`.* FROM " + user);
     }
 
-    public void userPrivilegeGlobalGrant(String user, String privilege) {
-        logger.info("Grant for user {} globally the privilege {}", user, privilege);
-        jdbcTemplate.update("GRANT " + privilege + " ON *.* TO " + user);
+    @Override
+    public void userPrivilegeGlobalGrant(String user, Collection<String> privileges) {
+        logger.info("Grant for user {} globally the privileges {}", user, privileges);
+        update(user, "GRANT " + toPrivilegesSql(privileges, null) + " ON *.* TO " + user);
     }
 
-    public void userPrivilegeGlobalRevoke(String user, String privilege) {
-        logger.info("Revoke for user {} globally the privilege {}", user, privilege);
-        jdbcTemplate.update("REVOKE " + privilege + " ON *.* FROM " + user);
+    @Override
+    public void userPrivilegeGlobalRevoke(String user, Collection<String> privileges) {
+        logger.info("Revoke for user {} globally the privileges {}", user, privileges);
+        update(user, "REVOKE " + toPrivilegesSql(privileges, null) + " ON *.* FROM " + user);
 
     }
 
+    @Override
     public void userPrivilegesFlush() {
         logger.info("Flush privileges");
-        jdbcTemplate.update("FLUSH PRIVILEGES");
+        update(null, "FLUSH PRIVILEGES");
     }
 
+    @Override
     public List<MariadbManagerConfigUserAndGrants> usersList() {
+        Tuple2<List<MariadbManagerConfigUserAndGrants>, Set<String>> usersAndAllDatabasePrivileges = snapshotCache.getOrLoad("users", this::usersListFromServer);
+        allDatabasePrivileges = usersAndAllDatabasePrivileges.getB();
+        return new ArrayList<>(usersAndAllDatabasePrivileges.getA());
+    }
+
+    private Tuple2<List<MariadbManagerConfigUserAndGrants>, Set<String>> usersListFromServer() {
 
         try (Connection connection = dataSource.getConnection()) {
         } catch (Exception e) {
             // throw new
         }
 
-        Map<String, MariadbManagerConfigUserAndGrants> userAndGrantsByUser = jdbcTemplate.query("SELECT * FROM user ORDER BY user, host",
+        Set<String> allDatabasePrivileges = new TreeSet<>();
+        Map<String, MariadbManagerConfigUserAndGrants> userAndGrantsByUser = time("SELECT", "mysql.user", () -> jdbcTemplate.query("SELECT * FROM user ORDER BY user, host",
                 new ResultSetExtractor<Map<String, MariadbManagerConfigUserAndGrants>>() {
                     @Override
                     public Map<String, MariadbManagerConfigUserAndGrants> extractData(ResultSet rs) throws SQLException, DataAccessException {
@@ -182,15 +312,17 @@ public class MariadbQueries extends AbstractBasics {
                         return userAndGrantsByUser;
                     }
 
-                });
+                }));
 
         // Databases grants
-        jdbcTemplate.query("SELECT * FROM db ORDER BY user, host, db", new ResultSetExtractor<Void>() {
+        time("SELECT", "mysql.db", () -> jdbcTemplate.query("SELECT * FROM db ORDER BY user, host, db", new ResultSetExtractor<Void>() {
             @Override
             public Void extractData(ResultSet rs) throws SQLException, DataAccessException {
 
                 // Get the column names
                 Map<String, String> grantByColumnName = getGrantByColumnName(rs);
+                allDatabasePrivileges.addAll(grantByColumnName.values());
+                allDatabasePrivileges.remove(GRANT_OPTION);
 
                 // Go through all
                 while (rs.next()) {
@@ -217,9 +349,9 @@ public class MariadbQueries extends AbstractBasics {
 
             }
 
-        });
+        }));
 
-        return userAndGrantsByUser.values().stream().sorted().collect(Collectors.toList());
+        return new Tuple2<>(userAndGrantsByUser.values().stream().sorted().collect(Collectors.toList()), allDatabasePrivileges);
     }
 
 }
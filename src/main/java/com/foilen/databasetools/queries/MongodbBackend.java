@@ -0,0 +1,187 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.manage.mongodb.MongodbManagerConfigUserAndRoles;
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+
+/**
+ * What the reconciliation reads from and changes on a MongoDB server. {@link MongodbQueries} talks to a real server.
+ */
+public interface MongodbBackend extends Closeable {
+
+    /**
+     * Release the resources.
+     */
+    @Override
+    void close();
+
+    /**
+     * Drop a database.
+     *
+     * @param database
+     *            the name of the database
+     */
+    void databaseRemove(String database);
+
+    /**
+     * List the databases that are not the system ones.
+     *
+     * @return the names of the databases
+     */
+    List<String> databasesListNonSystem();
+
+    /**
+     * The connection details of the server.
+     *
+     * @return the connection
+     */
+    JdbcUriConfigConnection getConnection();
+
+    /**
+     * Create a role without any privilege if it does not exist.
+     *
+     * @param roleDatabase
+     *            the database of the role
+     * @param roleName
+     *            the name of the role
+     */
+    void roleCreate(String roleDatabase, String roleName);
+
+    /**
+     * Add privileges to a role.
+     *
+     * @param roleDatabase
+     *            the database of the role
+     * @param roleName
+     *            the name of the role
+     * @param privileges
+     *            the privileges
+     */
+    void rolePrivilegesAdd(String roleDatabase, String roleName, List<MongodbFlatPrivilege> privileges);
+
+    /**
+     * Remove privileges from a role.
+     *
+     * @param roleDatabase
+     *            the database of the role
+     * @param roleName
+     *            the name of the role
+     * @param privileges
+     *            the privileges
+     */
+    void rolePrivilegesRemove(String roleDatabase, String roleName, List<MongodbFlatPrivilege> privileges);
+
+    /**
+     * Drop a role if it exists.
+     *
+     * @param roleDatabase
+     *            the database of the role
+     * @param roleName
+     *            the name of the role
+     */
+    void roleRemove(String roleDatabase, String roleName);
+
+    /**
+     * List the roles of all the databases with their privileges.
+     *
+     * @return the roles
+     */
+    List<MongodbFlatRole> rolesList();
+
+    /**
+     * Tell which config file the commands are for in the Flight Recorder events.
+     *
+     * @param configFile
+     *            the config file
+     */
+    void setConfigFile(String configFile);
+
+    /**
+     * Get the hash of the collections where the users and roles are stored. It changes every time a user or a role is modified.
+     *
+     * @return the hash by collection name
+     */
+    Map<String, String> systemCollectionsHash();
+
+    /**
+     * Create a user if it does not exist.
+     *
+     * @param database
+     *            the database of the user
+     * @param user
+     *            the name of the user
+     * @param password
+     *            the password in clear text or null
+     * @param rolesByDatabase
+     *            the role names by role database
+     */
+    void userCreate(String database, String user, String password, Map<String, List<String>> rolesByDatabase);
+
+    /**
+     * Change the password of a user.
+     *
+     * @param database
+     *            the database of the user
+     * @param user
+     *            the name of the user
+     * @param password
+     *            the password in clear text
+     */
+    void userPasswordUpdate(String database, String user, String password);
+
+    /**
+     * Drop a user if it exists.
+     *
+     * @param database
+     *            the database of the user
+     * @param user
+     *            the name of the user
+     */
+    void userRemove(String database, String user);
+
+    /**
+     * Grant roles to a user.
+     *
+     * @param userDatabase
+     *            the database of the user
+     * @param userName
+     *            the name of the user
+     * @param rolesByDatabase
+     *            the role names by role database
+     */
+    void userRolesGrant(String userDatabase, String userName, Map<String, List<String>> rolesByDatabase);
+
+    /**
+     * Revoke roles from a user.
+     *
+     * @param userDatabase
+     *            the database of the user
+     * @param userName
+     *            the name of the user
+     * @param rolesByDatabase
+     *            the role names by role database
+     */
+    void userRolesRevoke(String userDatabase, String userName, Map<String, List<String>> rolesByDatabase);
+
+    /**
+     * List the users of all the databases with their roles and credentials.
+     *
+     * @return the users
+     */
+    List<MongodbManagerConfigUserAndRoles> usersList();
+
+}
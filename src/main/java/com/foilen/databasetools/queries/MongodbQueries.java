@@ -15,201 +15,328 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
 import org.bson.Document;
 
 import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.connection.MongodbClients;
 import com.foilen.databasetools.manage.mongodb.MongodbManagerConfigUserAndRoles;
 import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
 import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+import com.foilen.databasetools.manage.mongodb.model.MongodbScramCredential;
+import com.foilen.databasetools.metrics.StatementTimings;
 import com.foilen.smalltools.tools.AbstractBasics;
 import com.foilen.smalltools.tools.CollectionsTools;
-import com.mongodb.client.MongoDatabase;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoClient;
+
+public class MongodbQueries extends AbstractBasics implements MongodbBackend {
+
+    public static final String COLLECTION_SYSTEM_ROLES = "system.roles";
+    public static final String COLLECTION_SYSTEM_USERS = "system.users";
 
-public class MongodbQueries extends AbstractBasics {
+    private static final String DATABASE_TYPE = "MongoDB";
 
+    // The errors of the commands that were already done (e.g. by an attempt that lost its response)
+    private static final int ERROR_USER_NOT_FOUND = 11;
+    private static final int ERROR_ROLE_NOT_FOUND = 31;
+    private static final int ERROR_ROLE_ALREADY_EXISTS = 51002;
+    private static final int ERROR_USER_ALREADY_EXISTS = 51003;
     private static final String DB_ADMIN = "admin";
 
     private static final Set<String> SYSTEM_DATABASES = new HashSet<>(Arrays.asList(DB_ADMIN, "config", "local"));
 
+    private final JdbcUriConfigConnection configConnection;
     private final MongoClient mongoClient;
+    private final SnapshotCache snapshotCache;
+    private final String server;
+    private volatile String configFile;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     public MongodbQueries(JdbcUriConfigConnection configConnection) {
         logger.info("Will use {}", configConnection);
-        mongoClient = MongoClients.create(configConnection.getJdbcUri().replace("jdbc:", ""));
+        this.configConnection = configConnection;
+        mongoClient = MongodbClients.acquire(configConnection);
+        snapshotCache = SnapshotCache.get(configConnection);
+        server = configConnection.getServer();
+    }
+
+    /**
+     * Release the shared client. It is only closed when no other queries use it.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            MongodbClients.release(configConnection);
+        }
     }
 
+    @Override
     public void databaseRemove(String database) {
         logger.info("[REMOVE] Database {}", database);
 
-        mongoClient.getDatabase(database).drop();
+        try {
+            time("dropDatabase", database, () -> mongoClient.getDatabase(database).drop());
+        } finally {
+            snapshotCache.invalidate();
+        }
     }
 
+    @Override
     public List<String> databasesListNonSystem() {
-        return StreamSupport.stream(mongoClient.listDatabaseNames().spliterator(), false) //
-                .filter(d -> !SYSTEM_DATABASES.contains(d)) //
-                .collect(Collectors.toList());
+        return new ArrayList<>(snapshotCache.getOrLoad("databases", () -> {
+            return time("listDatabases", null, () -> StreamSupport.stream(mongoClient.listDatabaseNames().spliterator(), false) //
+                    .filter(d -> !SYSTEM_DATABASES.contains(d)) //
+                    .collect(Collectors.toList()));
+        }));
     }
 
+    @Override
+    public JdbcUriConfigConnection getConnection() {
+        return configConnection;
+    }
+
+    @Override
     public void roleCreate(String roleDatabase, String roleName) {
         logger.info("[CREATE] Role {} / {}", roleDatabase, roleName);
 
-        mongoClient.getDatabase(roleDatabase).runCommand(new Document("createRole", roleName) //
+        runWriteCommand(roleDatabase, new Document("createRole", roleName) //
                 .append("roles", Collections.emptyList()) //
-                .append("privileges", Collections.emptyList()) //
-        );
+                .append("privileges", Collections.emptyList()), //
+                ERROR_ROLE_ALREADY_EXISTS);
     }
 
-    public void rolePrivilegeAdd(String roleDatabase, String roleName, MongodbFlatPrivilege privilege, List<String> actionsToAdd) {
-        logger.info("[ADD] For role {} / {} add privilege {} actions {}", roleDatabase, roleName, privilege, actionsToAdd);
+    @Override
+    public void rolePrivilegesAdd(String roleDatabase, String roleName, List<MongodbFlatPrivilege> privileges) {
+        logger.info("[ADD] For role {} / {} add privileges {}", roleDatabase, roleName, privileges);
 
-        mongoClient.getDatabase(roleDatabase).runCommand(new Document("grantPrivilegesToRole", roleName) //
-                .append("privileges", Collections.singletonList( //
-                        new Document("resource", privilege.toResource()).append("actions", actionsToAdd) //
-                ) //
-                ) //
+        runWriteCommand(roleDatabase, new Document("grantPrivilegesToRole", roleName) //
+                .append("privileges", toPrivilegeDocuments(privileges)) //
         );
 
     }
 
-    public void rolePrivilegeRemove(String roleDatabase, String roleName, MongodbFlatPrivilege privilege, List<String> actionsToRemove) {
-        logger.info("[REMOVE] For role {} / {} remove privilege {} actions {}", roleDatabase, roleName, privilege, actionsToRemove);
+    @Override
+    public void rolePrivilegesRemove(String roleDatabase, String roleName, List<MongodbFlatPrivilege> privileges) {
+        logger.info("[REMOVE] For role {} / {} remove privileges {}", roleDatabase, roleName, privileges);
 
-        mongoClient.getDatabase(roleDatabase).runCommand(new Document("revokePrivilegesFromRole", roleName) //
-                .append("privileges", Collections.singletonList( //
-                                new Document("resource", privilege.toResource()).append("actions", actionsToRemove) //
-                        ) //
-                ) //
+        runWriteCommand(roleDatabase, new Document("revokePrivilegesFromRole", roleName) //
+                .append("privileges", toPrivilegeDocuments(privileges)) //
         );
     }
 
+    @Override
     public void roleRemove(String roleDatabase, String roleName) {
         logger.info("[REMOVE] Role {} / {}", roleDatabase, roleName);
 
-        mongoClient.getDatabase(roleDatabase).runCommand(new Document("dropRole", roleName));
+        runWriteCommand(roleDatabase, new Document("dropRole", roleName), ERROR_ROLE_NOT_FOUND);
     }
 
+    @Override
     public List<MongodbFlatRole> rolesList() {
+        return new ArrayList<>(snapshotCache.getOrLoad("roles", this::rolesListFromServer));
+    }
+
+    private List<MongodbFlatRole> rolesListFromServer() {
         logger.info("Get roles list");
-        List<MongodbFlatRole> flatRoles = new ArrayList<>();
 
-        // Find all roles
-        for (String databaseName : mongoClient.getDatabase(DB_ADMIN).getCollection("system.roles").distinct("db", String.class)) {
-            flatRoles.addAll(rolesList(databaseName));
-        }
+        // rolesInfo cannot span all the databases, but the roles are all stored in the admin database
+        List<MongodbFlatRole> flatRoles = new ArrayList<>();
+        time("find", DB_ADMIN + "." + COLLECTION_SYSTEM_ROLES, () -> {
+            for (Document role : mongoClient.getDatabase(DB_ADMIN).getCollection(COLLECTION_SYSTEM_ROLES).find()) {
+                flatRoles.add(toFlatRole(role));
+            }
+        });
 
         return flatRoles;
 
     }
 
-    public List<MongodbFlatRole> rolesList(String databaseName) {
-        logger.info("Get roles list for database {}", databaseName);
-        MongoDatabase database = mongoClient.getDatabase(databaseName);
-        Document result = database.runCommand(new Document("rolesInfo", 1).append("showPrivileges", 1));
+    /**
+     * Run a command that changes the server and forget the last reads.
+     *
+     * @param database
+     *            the database to run the command on
+     * @param command
+     *            the command
+     */
+    private void runWriteCommand(String database, Document command) {
+        try {
+            String commandName = command.keySet().iterator().next();
+            time(commandName, database + "." + command.get(commandName), () -> mongoClient.getDatabase(database).runCommand(command));
+        } finally {
+            snapshotCache.invalidate();
+        }
+    }
 
-        List<MongodbFlatRole> flatRoles = new ArrayList<>();
-        for (Document role : result.getList("roles", Document.class)) {
-            logger.info("Found role {}", role);
-            String roleName = role.getString("role");
-            MongodbFlatRole flatRole = new MongodbFlatRole(databaseName, roleName);
-
-            List<MongodbFlatPrivilege> flatPrivileges = new ArrayList<>();
-            for (Document privilege : role.getList("privileges", Document.class)) {
-                logger.info("Found privilege {}", privilege);
-
-                Document resource = privilege.get("resource", Document.class);
-                flatPrivileges.add(new MongodbFlatPrivilege( //
-                        resource.getString("db"), resource.getString("collection"), //
-                        resource.getBoolean("cluster"), //
-                        privilege.getList("actions", String.class)));
+    /**
+     * Run a command that changes the server and forget the last reads. A failure telling that the command was already done is ignored to make it safe to apply again.
+     *
+     * @param database
+     *            the database to run the command on
+     * @param command
+     *            the command
+     * @param alreadyDoneErrorCode
+     *            the error code telling that the command was already done (e.g. the user already exists)
+     */
+    private void runWriteCommand(String database, Document command, int alreadyDoneErrorCode) {
+        try {
+            runWriteCommand(database, command);
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != alreadyDoneErrorCode) {
+                throw e;
             }
+            logger.info("Command {} on {} was already done: {}", command.keySet().iterator().next(), database, e.getMessage());
+        }
+    }
+
+    @Override
+    public void setConfigFile(String configFile) {
+        this.configFile = configFile;
+    }
+
+    @Override
+    public Map<String, String> systemCollectionsHash() {
+        Document result = time("dbHash", DB_ADMIN, () -> mongoClient.getDatabase(DB_ADMIN).runCommand(new Document("dbHash", 1) //
+                .append("collections", Arrays.asList(COLLECTION_SYSTEM_ROLES, COLLECTION_SYSTEM_USERS)) //
+        ));
+
+        Map<String, String> hashByCollection = new HashMap<>();
+        Document collections = result.get("collections", Document.class);
+        for (String collection : Arrays.asList(COLLECTION_SYSTEM_ROLES, COLLECTION_SYSTEM_USERS)) {
+            hashByCollection.put(collection, collections == null ? null : collections.getString(collection));
+        }
+        return hashByCollection;
+    }
+
+    private void time(String operation, String target, Runnable command) {
+        StatementTimings.time(DATABASE_TYPE, server, configFile, operation, target, command);
+    }
 
-            flatRole.setPrivileges(flatPrivileges);
-            flatRoles.add(flatRole);
+    private <T> T time(String operation, String target, Supplier<T> command) {
+        return StatementTimings.time(DATABASE_TYPE, server, configFile, operation, target, command);
+    }
+
+    private MongodbFlatRole toFlatRole(Document role) {
+        String databaseName = role.getString("db");
+        String roleName = role.getString("role");
+        logger.info("Found role {} / {}", databaseName, roleName);
+        MongodbFlatRole flatRole = new MongodbFlatRole(databaseName, roleName);
+
+        List<MongodbFlatPrivilege> flatPrivileges = new ArrayList<>();
+        for (Document privilege : role.getList("privileges", Document.class)) {
+            logger.debug("Found privilege {}", privilege);
+
+            Document resource = privilege.get("resource", Document.class);
+            flatPrivileges.add(new MongodbFlatPrivilege( //
+                    resource.getString("db"), resource.getString("collection"), //
+                    resource.getBoolean("cluster"), //
+                    privilege.getList("actions", String.class)));
         }
 
-        return flatRoles;
+        flatRole.setPrivileges(flatPrivileges);
+        return flatRole;
+    }
+
+    private List<Document> toPrivilegeDocuments(List<MongodbFlatPrivilege> privileges) {
+        return privileges.stream() //
+                .map(privilege -> new Document("resource", privilege.toResource()).append("actions", privilege.getActions())) //
+                .collect(Collectors.toList());
+    }
+
+    private List<Document> toRoleDocuments(Map<String, List<String>> rolesByDatabase) {
+        List<Document> roles = new ArrayList<>();
+        if (rolesByDatabase != null) {
+            rolesByDatabase.forEach((roleDatabase, roleNames) -> roleNames.forEach(roleName -> roles.add(new Document("role", roleName).append("db", roleDatabase))));
+        }
+        return roles;
+    }
+
+    private MongodbManagerConfigUserAndRoles toUserAndRoles(Document user) {
+        String databaseName = user.getString("db");
+        String userName = user.getString("user");
+        logger.info("Found user {} / {}", databaseName, userName);
+        MongodbManagerConfigUserAndRoles userAndRoles = new MongodbManagerConfigUserAndRoles(databaseName, userName);
+        userAndRoles.setRolesByDatabase(new HashMap<>());
+        for (Document role : user.getList("roles", Document.class)) {
+            CollectionsTools.getOrCreateEmptyArrayList(userAndRoles.getRolesByDatabase(), role.getString("db"), String.class) //
+                    .add(role.getString("role"));
+        }
+        Document credentials = user.get("credentials", Document.class);
+        if (credentials != null) {
+            userAndRoles.setCredentialsByMechanism(new HashMap<>());
+            for (String mechanism : credentials.keySet()) {
+                Document credential = credentials.get(mechanism, Document.class);
+                userAndRoles.getCredentialsByMechanism().put(mechanism,
+                        new MongodbScramCredential(credential.getInteger("iterationCount", 0), credential.getString("salt"), credential.getString("storedKey")));
+            }
+        }
+        return userAndRoles;
     }
 
-    public void userCreate(String database, String user, String password) {
-        logger.info("[CREATE] User {} / {}", database, user);
+    @Override
+    public void userCreate(String database, String user, String password, Map<String, List<String>> rolesByDatabase) {
+        logger.info("[CREATE] User {} / {} with roles {}", database, user, rolesByDatabase);
 
-        Document commandDocument = new Document("createUser", user).append("roles", Collections.emptyList());
+        Document commandDocument = new Document("createUser", user).append("roles", toRoleDocuments(rolesByDatabase));
         if (password != null) {
             commandDocument.append("pwd", password);
         }
-        mongoClient.getDatabase(database).runCommand(commandDocument);
+        runWriteCommand(database, commandDocument, ERROR_USER_ALREADY_EXISTS);
     }
 
+    @Override
     public void userPasswordUpdate(String database, String user, String password) {
         logger.info("[UPDATE] User password {} / {}", database, user);
 
-        mongoClient.getDatabase(database).runCommand(new Document("updateUser", user).append("pwd", password));
+        runWriteCommand(database, new Document("updateUser", user).append("pwd", password));
     }
 
+    @Override
     public void userRemove(String database, String user) {
         logger.info("[REMOVE] User {} / {}", database, user);
 
-        mongoClient.getDatabase(database).runCommand(new Document("dropUser", user));
+        runWriteCommand(database, new Document("dropUser", user), ERROR_USER_NOT_FOUND);
     }
 
-    public void userRoleGrant(String userDatabase, String userName, String roleDatabase, String roleName) {
-        logger.info("[ADD] Grant user {} / {} role {} / {}", userDatabase, userName, roleDatabase, roleName);
+    @Override
+    public void userRolesGrant(String userDatabase, String userName, Map<String, List<String>> rolesByDatabase) {
+        logger.info("[ADD] Grant user {} / {} roles {}", userDatabase, userName, rolesByDatabase);
 
-        mongoClient.getDatabase(userDatabase).runCommand(new Document("grantRolesToUser", userName) //
-                .append("roles", Collections.singletonList( //
-                                new Document("role", roleName).append("db", roleDatabase) //
-                        ) //
-                ) //
+        runWriteCommand(userDatabase, new Document("grantRolesToUser", userName) //
+                .append("roles", toRoleDocuments(rolesByDatabase)) //
         );
     }
 
-    public void userRoleRevoke(String userDatabase, String userName, String roleDatabase, String roleName) {
-        logger.info("[REMOVE] Revoke user {} / {} role {} / {}", userDatabase, userName, roleDatabase, roleName);
+    @Override
+    public void userRolesRevoke(String userDatabase, String userName, Map<String, List<String>> rolesByDatabase) {
+        logger.info("[REMOVE] Revoke user {} / {} roles {}", userDatabase, userName, rolesByDatabase);
 
-        mongoClient.getDatabase(userDatabase).runCommand(new Document("revokeRolesFromUser", userName) //
-                .append("roles", Collections.singletonList( //
-                                new Document("role", roleName).append("db", roleDatabase) //
-                        ) //
-                ) //
+        runWriteCommand(userDatabase, new Document("revokeRolesFromUser", userName) //
+                .append("roles", toRoleDocuments(rolesByDatabase)) //
         );
     }
 
+    @Override
     public List<MongodbManagerConfigUserAndRoles> usersList() {
-        logger.info("Get users list");
-        List<MongodbManagerConfigUserAndRoles> userAndRoles = new ArrayList<>();
-
-        for (String databaseName : mongoClient.getDatabase(DB_ADMIN).getCollection("system.users").distinct("db", String.class)) {
-            userAndRoles.addAll(usersList(databaseName));
-        }
-
-        return userAndRoles;
+        return new ArrayList<>(snapshotCache.getOrLoad("users", this::usersListFromServer));
     }
 
-    public List<MongodbManagerConfigUserAndRoles> usersList(String databaseName) {
-        logger.info("Get users list for database {}", databaseName);
-        MongoDatabase database = mongoClient.getDatabase(databaseName);
-        Document result = database.runCommand(new Document("usersInfo", 1));
-
-        List<MongodbManagerConfigUserAndRoles> usersAndRoles = new ArrayList<>();
-        for (Document user : result.getList("users", Document.class)) {
-            logger.info("Found user {}", user);
-            String userName = user.getString("user");
-            MongodbManagerConfigUserAndRoles userAndRoles = new MongodbManagerConfigUserAndRoles(databaseName, userName);
-            usersAndRoles.add(userAndRoles);
-            userAndRoles.setRolesByDatabase(new HashMap<>());
-            for (Document role : user.getList("roles", Document.class)) {
-                CollectionsTools.getOrCreateEmptyArrayList(userAndRoles.getRolesByDatabase(), role.getString("db"), String.class) //
-                        .add(role.getString("role"));
-            }
-        }
+    private List<MongodbManagerConfigUserAndRoles> usersListFromServer() {
+        logger.info("Get users list");
+        Document result = time("usersInfo", "all databases",
+                () -> mongoClient.getDatabase(DB_ADMIN).runCommand(new Document("usersInfo", new Document("forAllDBs", true)).append("showCredentials", true)));
 
-        return usersAndRoles;
+        return result.getList("users", Document.class).stream() //
+                .map(this::toUserAndRoles) //
+                .collect(Collectors.toList());
     }
 
 }
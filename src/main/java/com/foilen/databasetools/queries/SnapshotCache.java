@@ -0,0 +1,151 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * The last reads of a server shared by all the queries going to the same server, even when their URIs differ (e.g. other credentials or options). The config files that only manage a
+ * slice of a server then share the same read of its users instead of each reading all of them. The reads are kept for a short time and forgotten as soon as anything is written on the
+ * server through the tool.
+ */
+public class SnapshotCache extends AbstractBasics {
+
+    private static class Snapshot {
+
+        private final long generation;
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private volatile long loadedOn;
+
+        public Snapshot(long generation) {
+            this.generation = generation;
+        }
+
+    }
+
+    public static final long DEFAULT_TTL_IN_MS = 10000;
+
+    private static final Map<String, SnapshotCache> cacheByServer = new ConcurrentHashMap<>();
+
+    private static volatile long ttlInMs = DEFAULT_TTL_IN_MS;
+
+    /**
+     * Get the cache of the server of that connection.
+     *
+     * @param configConnection
+     *            the connection
+     * @return the cache
+     */
+    public static SnapshotCache get(JdbcUriConfigConnection configConnection) {
+        return cacheByServer.computeIfAbsent(configConnection.getServer(), server -> new SnapshotCache());
+    }
+
+    /**
+     * Change how long the reads are kept.
+     *
+     * @param ttlInMs
+     *            the time to live. 0 to disable the cache
+     */
+    public static void setTtlInMs(long ttlInMs) {
+        SnapshotCache.ttlInMs = ttlInMs;
+    }
+
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, Snapshot> snapshotByName = new ConcurrentHashMap<>();
+
+    private SnapshotCache() {
+    }
+
+    /**
+     * Get the last read if it is recent enough or read it now. Concurrent callers wait for the same read without blocking the callers of the other reads or of {@link #invalidate()}.
+     *
+     * @param name
+     *            the name of the read
+     * @param loader
+     *            how to read it. The value must not be modified once returned since it is shared
+     * @param <T>
+     *            the type of value
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String name, Supplier<T> loader) {
+        long ttlInMs = SnapshotCache.ttlInMs;
+        if (ttlInMs <= 0) {
+            return loader.get();
+        }
+
+        while (true) {
+            long currentGeneration = generation.get();
+            Snapshot snapshot = snapshotByName.get(name);
+
+            // Use or wait for the read of the current generation
+            if (snapshot != null && snapshot.generation == currentGeneration && !snapshot.value.isCompletedExceptionally()) {
+                if (!snapshot.value.isDone()) {
+                    logger.info("Waiting for the read of {} in progress", name);
+                    return (T) join(snapshot.value);
+                }
+                long loadedAgo = System.currentTimeMillis() - snapshot.loadedOn;
+                if (loadedAgo < ttlInMs) {
+                    logger.info("Using the read of {} from {} ms ago", name, loadedAgo);
+                    return (T) join(snapshot.value);
+                }
+            }
+
+            // Take the place of the missing, expired or invalidated read. Retry if another caller took it first
+            Snapshot newSnapshot = new Snapshot(currentGeneration);
+            boolean taken = snapshot == null ? snapshotByName.putIfAbsent(name, newSnapshot) == null : snapshotByName.replace(name, snapshot, newSnapshot);
+            if (!taken) {
+                continue;
+            }
+
+            try {
+                T value = loader.get();
+                newSnapshot.loadedOn = System.currentTimeMillis();
+                newSnapshot.value.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                snapshotByName.remove(name, newSnapshot);
+                newSnapshot.value.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Forget all the reads. To call after writing on the server. The reads in progress are still given to the callers already waiting for them, but not to the next ones.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private Object join(CompletableFuture<Object> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+}
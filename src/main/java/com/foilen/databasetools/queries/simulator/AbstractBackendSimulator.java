@@ -0,0 +1,134 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries.simulator;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.metrics.StatementTimings;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.ThreadTools;
+
+/**
+ * Keeps the state of a server in memory to load test the reconciliation without a server. Every operation is counted, timed like a real statement and can be slowed down to simulate the
+ * latency of the network and of the server.
+ */
+public abstract class AbstractBackendSimulator extends AbstractBasics {
+
+    private final String databaseType;
+    private final JdbcUriConfigConnection connection;
+    private volatile String configFile;
+
+    private volatile long defaultLatencyInMs;
+    private final Map<String, Long> latencyInMsByOperation = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> countByOperation = new ConcurrentHashMap<>();
+
+    protected AbstractBackendSimulator(String databaseType, JdbcUriConfigConnection connection) {
+        this.databaseType = databaseType;
+        this.connection = connection;
+    }
+
+    public JdbcUriConfigConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Get how many times each operation was called since the creation or the last {@link #resetCounts()}.
+     *
+     * @return the count by operation (sorted by operation)
+     */
+    public Map<String, Long> getCountByOperation() {
+        Map<String, Long> result = new TreeMap<>();
+        countByOperation.forEach((operation, count) -> result.put(operation, count.get()));
+        return result;
+    }
+
+    /**
+     * Count, wait for the latency and then change or read the state. The state is changed while holding the lock of the simulator, but the latency is waited outside it to let the
+     * operations run in parallel like on a real server.
+     *
+     * @param operation
+     *            the type of operation (the same as the real statements)
+     * @param target
+     *            what the operation is about for the slow statement log
+     * @param action
+     *            what to do on the state
+     * @param <T>
+     *            the type of result
+     * @return the result of the action
+     */
+    protected <T> T operation(String operation, String target, Supplier<T> action) {
+        countByOperation.computeIfAbsent(operation, k -> new AtomicLong()).incrementAndGet();
+        return StatementTimings.time(databaseType, connection.getServer(), configFile, operation, target, () -> {
+            long latencyInMs = latencyInMsByOperation.getOrDefault(operation, defaultLatencyInMs);
+            if (latencyInMs > 0) {
+                ThreadTools.sleep(latencyInMs);
+            }
+            synchronized (this) {
+                return action.get();
+            }
+        });
+    }
+
+    /**
+     * Count, wait for the latency and then change the state.
+     *
+     * @param operation
+     *            the type of operation (the same as the real statements)
+     * @param target
+     *            what the operation is about for the slow statement log
+     * @param action
+     *            what to do on the state
+     */
+    protected void operation(String operation, String target, Runnable action) {
+        operation(operation, target, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Forget the counts of the operations.
+     */
+    public void resetCounts() {
+        countByOperation.clear();
+    }
+
+    public void setConfigFile(String configFile) {
+        this.configFile = configFile;
+    }
+
+    /**
+     * Set the latency of the operations that do not have their own.
+     *
+     * @param defaultLatencyInMs
+     *            the latency
+     */
+    public void setDefaultLatencyInMs(long defaultLatencyInMs) {
+        this.defaultLatencyInMs = defaultLatencyInMs;
+    }
+
+    /**
+     * Set the latency of one type of operation.
+     *
+     * @param operation
+     *            the type of operation (e.g. "CREATE USER" or "createUser")
+     * @param latencyInMs
+     *            the latency
+     */
+    public void setLatencyInMs(String operation, long latencyInMs) {
+        latencyInMsByOperation.put(operation, latencyInMs);
+    }
+
+}
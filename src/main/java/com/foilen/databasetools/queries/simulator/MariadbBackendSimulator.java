@@ -0,0 +1,174 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.mariadb.MariadbManagerConfigUserAndGrants;
+import com.foilen.databasetools.manage.mariadb.MariadbPasswordTools;
+import com.foilen.databasetools.queries.MariadbBackend;
+
+/**
+ * A MariaDB server in memory with its databases, users, passwords and grants. The operations have the same names as the statements of the real server (e.g. "CREATE USER", "GRANT").
+ */
+public class MariadbBackendSimulator extends AbstractBackendSimulator implements MariadbBackend {
+
+    private static final Set<String> ALL_DATABASE_PRIVILEGES = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList( //
+            "ALTER", "ALTER ROUTINE", "CREATE", "CREATE ROUTINE", "CREATE TEMPORARY TABLES", "CREATE VIEW", "DELETE", "DELETE HISTORY", "DROP", "EVENT", "EXECUTE", "INDEX", "INSERT",
+            "LOCK TABLES", "REFERENCES", "SELECT", "SHOW VIEW", "TRIGGER", "UPDATE")));
+
+    private final Set<String> databases = new TreeSet<>();
+    private final Map<String, MariadbManagerConfigUserAndGrants> userByFullName = new TreeMap<>();
+
+    public MariadbBackendSimulator(JdbcUriConfigConnection connection) {
+        super("MariaDB", connection);
+    }
+
+    @Override
+    public void databaseCreate(String database) {
+        operation("CREATE DATABASE", database, () -> {
+            databases.add(database);
+        });
+    }
+
+    @Override
+    public void databaseDelete(String database) {
+        operation("DROP DATABASE", database, () -> {
+            databases.remove(database);
+        });
+    }
+
+    @Override
+    public List<String> databasesListNonSystem() {
+        return operation("SHOW DATABASES", null, () -> new ArrayList<>(databases));
+    }
+
+    @Override
+    public Set<String> getAllDatabasePrivileges() {
+        return ALL_DATABASE_PRIVILEGES;
+    }
+
+    private MariadbManagerConfigUserAndGrants getUser(String user) {
+        MariadbManagerConfigUserAndGrants userAndGrants = userByFullName.get(user);
+        if (userAndGrants == null) {
+            throw new ProblemException("User " + user + " does not exist");
+        }
+        return userAndGrants;
+    }
+
+    @Override
+    public void userCreate(String user) {
+        operation("CREATE USER", user, () -> {
+            if (userByFullName.containsKey(user)) {
+                return;
+            }
+            // 'name'@'host'
+            String[] nameAndHost = user.substring(1, user.length() - 1).split("'@'", 2);
+            MariadbManagerConfigUserAndGrants userAndGrants = new MariadbManagerConfigUserAndGrants(nameAndHost[0], nameAndHost[1]);
+            userAndGrants.setGlobalGrants(new ArrayList<>());
+            userAndGrants.setGrantsByDatabase(new HashMap<>());
+            userByFullName.put(user, userAndGrants);
+        });
+    }
+
+    @Override
+    public void userDelete(String user) {
+        operation("DROP USER", user, () -> {
+            userByFullName.remove(user);
+        });
+    }
+
+    @Override
+    public void userPasswordUpdate(String user, String password) {
+        operation("ALTER USER", user, () -> getUser(user).setHashedPassword(MariadbPasswordTools.nativePasswordHash(password)));
+    }
+
+    @Override
+    public void userPasswordUpdateHash(String user, String hashedPassword) {
+        operation("ALTER USER", user, () -> getUser(user).setHashedPassword(hashedPassword));
+    }
+
+    @Override
+    public void userPrivilegeDatabaseGrant(String user, String database, Collection<String> privileges) {
+        operation("GRANT", user + " on " + database, () -> {
+            Set<String> grants = new TreeSet<>(getUser(user).getGrantsByDatabase().getOrDefault(database, Collections.emptyList()));
+            grants.addAll(privileges);
+            getUser(user).getGrantsByDatabase().put(database, new ArrayList<>(grants));
+        });
+    }
+
+    @Override
+    public void userPrivilegeDatabaseRevoke(String user, String database, Collection<String> privileges) {
+        operation("REVOKE", user + " on " + database, () -> {
+            Set<String> grants = new TreeSet<>(getUser(user).getGrantsByDatabase().getOrDefault(database, Collections.emptyList()));
+            grants.removeAll(privileges);
+            if (grants.isEmpty()) {
+                getUser(user).getGrantsByDatabase().remove(database);
+            } else {
+                getUser(user).getGrantsByDatabase().put(database, new ArrayList<>(grants));
+            }
+        });
+    }
+
+    @Override
+    public void userPrivilegeGlobalGrant(String user, Collection<String> privileges) {
+        operation("GRANT", user, () -> {
+            Set<String> grants = new TreeSet<>(getUser(user).getGlobalGrants());
+            grants.addAll(privileges);
+            getUser(user).setGlobalGrants(new ArrayList<>(grants));
+        });
+    }
+
+    @Override
+    public void userPrivilegeGlobalRevoke(String user, Collection<String> privileges) {
+        operation("REVOKE", user, () -> {
+            Set<String> grants = new TreeSet<>(getUser(user).getGlobalGrants());
+            grants.removeAll(privileges);
+            getUser(user).setGlobalGrants(new ArrayList<>(grants));
+        });
+    }
+
+    @Override
+    public void userPrivilegesFlush() {
+        operation("FLUSH PRIVILEGES", null, () -> {
+        });
+    }
+
+    @Override
+    public List<MariadbManagerConfigUserAndGrants> usersList() {
+        // Like the real server: one statement for the users and one for the databases grants
+        operation("SELECT", "mysql.user", () -> {
+        });
+        return operation("SELECT", "mysql.db", () -> {
+            List<MariadbManagerConfigUserAndGrants> users = new ArrayList<>();
+            for (MariadbManagerConfigUserAndGrants userAndGrants : userByFullName.values()) {
+                MariadbManagerConfigUserAndGrants copy = new MariadbManagerConfigUserAndGrants(userAndGrants.getName(), userAndGrants.getHost());
+                copy.setHashedPassword(userAndGrants.getHashedPassword());
+                copy.setGlobalGrants(new ArrayList<>(userAndGrants.getGlobalGrants()));
+                copy.setGrantsByDatabase(new HashMap<>());
+                userAndGrants.getGrantsByDatabase().forEach((database, grants) -> copy.getGrantsByDatabase().put(database, new ArrayList<>(grants)));
+                users.add(copy);
+            }
+            return users;
+        });
+    }
+
+}
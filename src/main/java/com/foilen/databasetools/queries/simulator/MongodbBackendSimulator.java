@@ -0,0 +1,287 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries.simulator;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.exception.ProblemException;
+import com.foilen.databasetools.manage.mongodb.MongodbManagerConfigUserAndRoles;
+import com.foilen.databasetools.manage.mongodb.MongodbScramTools;
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+import com.foilen.databasetools.manage.mongodb.model.MongodbScramCredential;
+import com.foilen.databasetools.queries.MongodbBackend;
+import com.foilen.databasetools.queries.MongodbQueries;
+
+/**
+ * A MongoDB server in memory with its databases, roles, privileges, users and SCRAM-SHA-256 credentials. The operations have the same names as the commands of the real server (e.g.
+ * "createUser", "grantRolesToUser").
+ */
+public class MongodbBackendSimulator extends AbstractBackendSimulator implements MongodbBackend {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final Set<String> databases = new TreeSet<>();
+    private final Map<String, MongodbFlatRole> roleByFullName = new TreeMap<>();
+    private final Map<String, MongodbManagerConfigUserAndRoles> userByFullName = new TreeMap<>();
+
+    private long rolesVersion;
+    private long usersVersion;
+
+    private int scramIterationCount = 15000;
+
+    public MongodbBackendSimulator(JdbcUriConfigConnection connection) {
+        super("MongoDB", connection);
+    }
+
+    /**
+     * Add a database that contains data.
+     *
+     * @param database
+     *            the name of the database
+     */
+    public synchronized void addDatabase(String database) {
+        databases.add(database);
+    }
+
+    /**
+     * Nothing to release.
+     */
+    @Override
+    public void close() {
+    }
+
+    private static Map<String, List<String>> copy(Map<String, List<String>> rolesByDatabase) {
+        Map<String, List<String>> copy = new HashMap<>();
+        if (rolesByDatabase != null) {
+            rolesByDatabase.forEach((roleDatabase, roleNames) -> copy.put(roleDatabase, new ArrayList<>(roleNames)));
+        }
+        return copy;
+    }
+
+    private static MongodbFlatPrivilege copy(MongodbFlatPrivilege privilege) {
+        return new MongodbFlatPrivilege(privilege.getDatabase(), privilege.getCollection(), privilege.getCluster(), new ArrayList<>(privilege.getActions()));
+    }
+
+    @Override
+    public void databaseRemove(String database) {
+        operation("dropDatabase", database, () -> {
+            databases.remove(database);
+        });
+    }
+
+    @Override
+    public List<String> databasesListNonSystem() {
+        return operation("listDatabases", null, () -> new ArrayList<>(databases));
+    }
+
+    private MongodbFlatRole getRole(String roleDatabase, String roleName) {
+        MongodbFlatRole role = roleByFullName.get(roleName + "@" + roleDatabase);
+        if (role == null) {
+            throw new ProblemException("Role " + roleName + "@" + roleDatabase + " does not exist");
+        }
+        return role;
+    }
+
+    private MongodbManagerConfigUserAndRoles getUser(String database, String user) {
+        MongodbManagerConfigUserAndRoles userAndRoles = userByFullName.get(database + "." + user);
+        if (userAndRoles == null) {
+            throw new ProblemException("User " + database + "." + user + " does not exist");
+        }
+        return userAndRoles;
+    }
+
+    @Override
+    public void roleCreate(String roleDatabase, String roleName) {
+        operation("createRole", roleDatabase + "." + roleName, () -> {
+            String fullName = roleName + "@" + roleDatabase;
+            if (roleByFullName.containsKey(fullName)) {
+                return;
+            }
+            roleByFullName.put(fullName, new MongodbFlatRole(roleDatabase, roleName));
+            ++rolesVersion;
+        });
+    }
+
+    @Override
+    public void rolePrivilegesAdd(String roleDatabase, String roleName, List<MongodbFlatPrivilege> privileges) {
+        operation("grantPrivilegesToRole", roleDatabase + "." + roleName, () -> {
+            List<MongodbFlatPrivilege> rolePrivileges = getRole(roleDatabase, roleName).getPrivileges();
+            for (MongodbFlatPrivilege privilege : privileges) {
+                MongodbFlatPrivilege rolePrivilege = rolePrivileges.stream().filter(it -> it.compareTo(privilege) == 0).findFirst().orElse(null);
+                if (rolePrivilege == null) {
+                    rolePrivileges.add(copy(privilege));
+                } else {
+                    Set<String> actions = new TreeSet<>(rolePrivilege.getActions());
+                    actions.addAll(privilege.getActions());
+                    rolePrivilege.setActions(new ArrayList<>(actions));
+                }
+            }
+            ++rolesVersion;
+        });
+    }
+
+    @Override
+    public void rolePrivilegesRemove(String roleDatabase, String roleName, List<MongodbFlatPrivilege> privileges) {
+        operation("revokePrivilegesFromRole", roleDatabase + "." + roleName, () -> {
+            List<MongodbFlatPrivilege> rolePrivileges = getRole(roleDatabase, roleName).getPrivileges();
+            for (MongodbFlatPrivilege privilege : privileges) {
+                rolePrivileges.stream().filter(it -> it.compareTo(privilege) == 0).findFirst().ifPresent(rolePrivilege -> {
+                    List<String> actions = new ArrayList<>(rolePrivilege.getActions());
+                    actions.removeAll(privilege.getActions());
+                    rolePrivilege.setActions(actions);
+                });
+            }
+            rolePrivileges.removeIf(it -> it.getActions().isEmpty());
+            ++rolesVersion;
+        });
+    }
+
+    @Override
+    public void roleRemove(String roleDatabase, String roleName) {
+        operation("dropRole", roleDatabase + "." + roleName, () -> {
+            if (roleByFullName.remove(roleName + "@" + roleDatabase) != null) {
+                ++rolesVersion;
+            }
+        });
+    }
+
+    @Override
+    public List<MongodbFlatRole> rolesList() {
+        return operation("find", "admin." + MongodbQueries.COLLECTION_SYSTEM_ROLES, () -> {
+            List<MongodbFlatRole> roles = new ArrayList<>();
+            for (MongodbFlatRole role : roleByFullName.values()) {
+                MongodbFlatRole copy = new MongodbFlatRole(role.getRoleDatabase(), role.getRoleName());
+                role.getPrivileges().forEach(privilege -> copy.getPrivileges().add(copy(privilege)));
+                roles.add(copy);
+            }
+            return roles;
+        });
+    }
+
+    /**
+     * Set the iteration count of the SCRAM credentials of the users created or updated afterward. A lower count than the server's default (15000) makes checking the passwords
+     * faster.
+     *
+     * @param scramIterationCount
+     *            the iteration count
+     */
+    public synchronized void setScramIterationCount(int scramIterationCount) {
+        this.scramIterationCount = scramIterationCount;
+    }
+
+    @Override
+    public Map<String, String> systemCollectionsHash() {
+        return operation("dbHash", "admin", () -> {
+            Map<String, String> hashByCollection = new HashMap<>();
+            hashByCollection.put(MongodbQueries.COLLECTION_SYSTEM_ROLES, String.valueOf(rolesVersion));
+            hashByCollection.put(MongodbQueries.COLLECTION_SYSTEM_USERS, String.valueOf(usersVersion));
+            return hashByCollection;
+        });
+    }
+
+    private Map<String, MongodbScramCredential> toCredentialsByMechanism(String user, String password) {
+        if (password == null) {
+            return null;
+        }
+        byte[] salt = new byte[28];
+        SECURE_RANDOM.nextBytes(salt);
+        String saltBase64 = Base64.getEncoder().encodeToString(salt);
+        String storedKey = MongodbScramTools.computeStoredKey(MongodbScramTools.SCRAM_SHA_256, user, password, saltBase64, scramIterationCount);
+        return Collections.singletonMap(MongodbScramTools.SCRAM_SHA_256, new MongodbScramCredential(scramIterationCount, saltBase64, storedKey));
+    }
+
+    @Override
+    public void userCreate(String database, String user, String password, Map<String, List<String>> rolesByDatabase) {
+        operation("createUser", database + "." + user, () -> {
+            String fullName = database + "." + user;
+            if (userByFullName.containsKey(fullName)) {
+                return;
+            }
+            MongodbManagerConfigUserAndRoles userAndRoles = new MongodbManagerConfigUserAndRoles(database, user);
+            userAndRoles.setRolesByDatabase(copy(rolesByDatabase));
+            userAndRoles.setCredentialsByMechanism(toCredentialsByMechanism(user, password));
+            userByFullName.put(fullName, userAndRoles);
+            ++usersVersion;
+        });
+    }
+
+    @Override
+    public void userPasswordUpdate(String database, String user, String password) {
+        operation("updateUser", database + "." + user, () -> {
+            getUser(database, user).setCredentialsByMechanism(toCredentialsByMechanism(user, password));
+            ++usersVersion;
+        });
+    }
+
+    @Override
+    public void userRemove(String database, String user) {
+        operation("dropUser", database + "." + user, () -> {
+            if (userByFullName.remove(database + "." + user) != null) {
+                ++usersVersion;
+            }
+        });
+    }
+
+    @Override
+    public void userRolesGrant(String userDatabase, String userName, Map<String, List<String>> rolesByDatabase) {
+        operation("grantRolesToUser", userDatabase + "." + userName, () -> {
+            Map<String, List<String>> userRolesByDatabase = getUser(userDatabase, userName).getRolesByDatabase();
+            rolesByDatabase.forEach((roleDatabase, roleNames) -> {
+                Set<String> userRoleNames = new TreeSet<>(userRolesByDatabase.getOrDefault(roleDatabase, Collections.emptyList()));
+                userRoleNames.addAll(roleNames);
+                userRolesByDatabase.put(roleDatabase, new ArrayList<>(userRoleNames));
+            });
+            ++usersVersion;
+        });
+    }
+
+    @Override
+    public void userRolesRevoke(String userDatabase, String userName, Map<String, List<String>> rolesByDatabase) {
+        operation("revokeRolesFromUser", userDatabase + "." + userName, () -> {
+            Map<String, List<String>> userRolesByDatabase = getUser(userDatabase, userName).getRolesByDatabase();
+            rolesByDatabase.forEach((roleDatabase, roleNames) -> {
+                List<String> userRoleNames = new ArrayList<>(userRolesByDatabase.getOrDefault(roleDatabase, Collections.emptyList()));
+                userRoleNames.removeAll(roleNames);
+                if (userRoleNames.isEmpty()) {
+                    userRolesByDatabase.remove(roleDatabase);
+                } else {
+                    userRolesByDatabase.put(roleDatabase, userRoleNames);
+                }
+            });
+            ++usersVersion;
+        });
+    }
+
+    @Override
+    public List<MongodbManagerConfigUserAndRoles> usersList() {
+        return operation("usersInfo", "all databases", () -> {
+            List<MongodbManagerConfigUserAndRoles> users = new ArrayList<>();
+            for (MongodbManagerConfigUserAndRoles userAndRoles : userByFullName.values()) {
+                MongodbManagerConfigUserAndRoles copy = new MongodbManagerConfigUserAndRoles(userAndRoles.getDatabase(), userAndRoles.getName());
+                copy.setRolesByDatabase(copy(userAndRoles.getRolesByDatabase()));
+                copy.setCredentialsByMechanism(userAndRoles.getCredentialsByMechanism());
+                users.add(copy);
+            }
+            return users;
+        });
+    }
+
+}
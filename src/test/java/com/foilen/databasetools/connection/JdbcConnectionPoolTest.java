@@ -0,0 +1,272 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JdbcConnectionPoolTest {
+
+    /**
+     * The physical connections opened by the {@link StubDriver}.
+     */
+    private static class StubConnection implements InvocationHandler {
+
+        private boolean closed;
+        private boolean valid = true;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "close":
+                closed = true;
+                return null;
+            case "getAutoCommit":
+                return true;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return valid;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "StubConnection";
+            }
+            throw new SQLFeatureNotSupportedException(method.getName());
+        }
+
+    }
+
+    private static class StubDriver implements Driver {
+
+        @Override
+        public boolean acceptsURL(String url) throws SQLException {
+            return url.startsWith(JDBC_URI_PREFIX);
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            StubConnection stubConnection = new StubConnection();
+            synchronized (openedConnections) {
+                openedConnections.add(stubConnection);
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, stubConnection);
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+    }
+
+    private static final String JDBC_URI_PREFIX = "jdbc:pooltest:";
+
+    private static final List<StubConnection> openedConnections = new ArrayList<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new StubDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private JdbcConnectionPool createPool(int maxSize, long acquireTimeoutInMs, long idleTimeoutInMs, long validateAfterIdleInMs) {
+        synchronized (openedConnections) {
+            openedConnections.clear();
+        }
+
+        JdbcConnectionPoolConfig config = new JdbcConnectionPoolConfig();
+        config.setMaxSize(maxSize);
+        config.setAcquireTimeoutInMs(acquireTimeoutInMs);
+        config.setIdleTimeoutInMs(idleTimeoutInMs);
+        config.setValidateAfterIdleInMs(validateAfterIdleInMs);
+        return new JdbcConnectionPool(new JdbcUriConfigConnection().setJdbcUri(JDBC_URI_PREFIX + "//localhost/db"), config);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        JdbcConnectionPool pool = createPool(2, 1000, 60000, 60000);
+        pool.getConnection().close();
+        Connection borrowed = pool.getConnection();
+        Connection other = pool.getConnection();
+        other.close();
+
+        Assert.assertEquals(2, openedConnections.size());
+        Assert.assertFalse(openedConnections.get(0).closed);
+        Assert.assertFalse(openedConnections.get(1).closed);
+
+        // The idle connection is closed with the pool
+        pool.close();
+        Assert.assertFalse(openedConnections.get(0).closed);
+        Assert.assertTrue(openedConnections.get(1).closed);
+
+        // The borrowed connection is closed when given back
+        borrowed.close();
+        Assert.assertTrue(openedConnections.get(0).closed);
+
+        try {
+            pool.getConnection();
+            Assert.fail("Expecting an exception");
+        } catch (SQLException e) {
+            Assert.assertEquals("The pool is closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testClose_twiceReleasesOnePermit() throws Exception {
+        JdbcConnectionPool pool = createPool(2, 100, 60000, 60000);
+        Connection first = pool.getConnection();
+        first.close();
+        first.close();
+        Assert.assertTrue(first.isClosed());
+
+        // Only the 2 permits are available
+        pool.getConnection();
+        pool.getConnection();
+        try {
+            pool.getConnection();
+            Assert.fail("Expecting an exception");
+        } catch (SQLException e) {
+            Assert.assertEquals("Timed out while waiting for a connection in the pool", e.getMessage());
+        }
+        Assert.assertEquals(2, openedConnections.size());
+    }
+
+    @Test
+    public void testEvictIdle() throws Exception {
+        JdbcConnectionPool pool = createPool(2, 1000, 10, 60000);
+        Connection borrowed = pool.getConnection();
+        pool.getConnection().close();
+        Assert.assertEquals(2, openedConnections.size());
+
+        Thread.sleep(50);
+        pool.evictIdle();
+
+        // Only the idle connection is closed
+        Assert.assertFalse(openedConnections.get(0).closed);
+        Assert.assertTrue(openedConnections.get(1).closed);
+        borrowed.close();
+        Assert.assertFalse(openedConnections.get(0).closed);
+
+        pool.close();
+    }
+
+    @Test
+    public void testGetConnection_dropsInvalidConnection() throws Exception {
+        JdbcConnectionPool pool = createPool(2, 1000, 60000, 0);
+        pool.getConnection().close();
+        openedConnections.get(0).valid = false;
+
+        Connection connection = pool.getConnection();
+        Assert.assertEquals(2, openedConnections.size());
+        Assert.assertTrue(openedConnections.get(0).closed);
+        Assert.assertFalse(openedConnections.get(1).closed);
+
+        // A valid connection is reused
+        connection.close();
+        pool.getConnection().close();
+        Assert.assertEquals(2, openedConnections.size());
+
+        pool.close();
+    }
+
+    @Test
+    public void testGetConnection_reusesReleasedConnection() throws Exception {
+        JdbcConnectionPool pool = createPool(2, 1000, 60000, 60000);
+
+        Connection first = pool.getConnection();
+        Assert.assertFalse(first.isClosed());
+        first.close();
+        Assert.assertTrue(first.isClosed());
+        Assert.assertEquals(1, openedConnections.size());
+        Assert.assertFalse(openedConnections.get(0).closed);
+
+        Connection second = pool.getConnection();
+        Assert.assertNotSame(first, second);
+        Assert.assertFalse(second.isClosed());
+        Assert.assertEquals(1, openedConnections.size());
+
+        try {
+            first.getAutoCommit();
+            Assert.fail("Expecting an exception");
+        } catch (SQLException e) {
+            Assert.assertEquals("The connection is already closed", e.getMessage());
+        }
+        Assert.assertTrue(second.getAutoCommit());
+
+        second.close();
+        pool.close();
+    }
+
+    @Test
+    public void testGetConnection_timeoutWhenAllBorrowed() throws Exception {
+        JdbcConnectionPool pool = createPool(2, 100, 60000, 60000);
+        pool.getConnection();
+        Connection second = pool.getConnection();
+
+        long start = System.currentTimeMillis();
+        try {
+            pool.getConnection();
+            Assert.fail("Expecting an exception");
+        } catch (SQLException e) {
+            Assert.assertEquals("Timed out while waiting for a connection in the pool", e.getMessage());
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start >= 100);
+
+        // A connection given back is available again
+        second.close();
+        pool.getConnection();
+        Assert.assertEquals(2, openedConnections.size());
+
+        pool.close();
+    }
+
+}
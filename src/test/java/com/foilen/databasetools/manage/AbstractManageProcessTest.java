@@ -0,0 +1,112 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+import com.foilen.databasetools.manage.exception.RetryLaterException;
+
+public class AbstractManageProcessTest {
+
+    private static class TestManageProcess extends AbstractManageProcess {
+
+        private final Map<String, List<Boolean>> executionsByServer = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> failuresLeftByServer = new ConcurrentHashMap<>();
+
+        public TestManageProcess(int... failuresLeftByServer) {
+            super("test.json", false, false);
+            for (int i = 0; i < failuresLeftByServer.length; ++i) {
+                this.failuresLeftByServer.put("server" + i + ":3306", new AtomicInteger(failuresLeftByServer[i]));
+            }
+        }
+
+        @Override
+        protected void execute(JdbcUriConfigConnection connection, boolean full) {
+            executionsByServer.computeIfAbsent(connection.getServer(), server -> Collections.synchronizedList(new ArrayList<>())).add(full);
+            if (failuresLeftByServer.get(connection.getServer()).getAndDecrement() > 0) {
+                throw new RetryLaterException("Not yet", 10);
+            }
+        }
+
+        @Override
+        protected String getDatabaseType() {
+            return "Test";
+        }
+
+        @Override
+        protected List<JdbcUriConfigConnection> loadConfig() {
+            return failuresLeftByServer.keySet().stream() //
+                    .map(server -> new JdbcUriConfigConnection().setJdbcUri("jdbc:mariadb://" + server + "/")) //
+                    .collect(Collectors.toList());
+        }
+
+    }
+
+    @Test(timeout = 10000)
+    public void testStart_failureEndsTheProcess() throws Exception {
+        ManageScheduler scheduler = new ManageScheduler(1, 1);
+        try {
+            AbstractManageProcess process = new TestManageProcess(0) {
+                @Override
+                protected void execute(JdbcUriConfigConnection connection, boolean full) {
+                    throw new IllegalStateException("Broken");
+                }
+            };
+            try {
+                process.start(scheduler).get(5, TimeUnit.SECONDS);
+                Assert.fail("Expecting a failure");
+            } catch (ExecutionException e) {
+                Assert.assertEquals("Killing the process", e.getCause().getMessage());
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStart_retriedUntilSuccess() throws Exception {
+        ManageScheduler scheduler = new ManageScheduler(1, 1);
+        try {
+            TestManageProcess process = new TestManageProcess(2);
+            process.start(scheduler).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(Arrays.asList(true, true, true), process.executionsByServer.get("server0:3306"));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStart_retryOnlyFullyReconcilesTheServersThatAskedForIt() throws Exception {
+        ManageScheduler scheduler = new ManageScheduler(4, 1);
+        try {
+            TestManageProcess process = new TestManageProcess(0, 1, 0);
+            process.start(scheduler).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(Arrays.asList(true, false), process.executionsByServer.get("server0:3306"));
+            Assert.assertEquals(Arrays.asList(true, true), process.executionsByServer.get("server1:3306"));
+            Assert.assertEquals(Arrays.asList(true, false), process.executionsByServer.get("server2:3306"));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+}
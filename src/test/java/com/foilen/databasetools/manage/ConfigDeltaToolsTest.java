@@ -0,0 +1,79 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.manage.mariadb.MariadbManagerConfigUserAndGrants;
+
+public class ConfigDeltaToolsTest {
+
+    private static String toKey(MariadbManagerConfigUserAndGrants user) {
+        return user.getName() + "@" + user.getHost();
+    }
+
+    private static MariadbManagerConfigUserAndGrants user(String name, String password) {
+        return new MariadbManagerConfigUserAndGrants(name, "%", password);
+    }
+
+    @Test
+    public void testChangedKeys() {
+        List<MariadbManagerConfigUserAndGrants> previous = Arrays.asList(user("kept", "a"), user("modified", "a"), user("removed", "a"));
+        List<MariadbManagerConfigUserAndGrants> next = Arrays.asList(user("added", "a"), user("kept", "a"), user("modified", "b"));
+
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("added@%", "modified@%", "removed@%")), ConfigDeltaTools.changedKeys(previous, next, ConfigDeltaToolsTest::toKey));
+        Assert.assertEquals(Collections.emptySet(), ConfigDeltaTools.changedKeys(previous, previous, ConfigDeltaToolsTest::toKey));
+    }
+
+    @Test
+    public void testChangedKeys_nullAndEmpty() {
+        List<MariadbManagerConfigUserAndGrants> users = Arrays.asList(user("u1", "a"));
+
+        // Both null: nothing changed
+        Assert.assertEquals(Collections.emptySet(), ConfigDeltaTools.changedKeys(null, null, ConfigDeltaToolsTest::toKey));
+
+        // Only one null: everything must be reconciled
+        Assert.assertNull(ConfigDeltaTools.changedKeys(null, users, ConfigDeltaToolsTest::toKey));
+        Assert.assertNull(ConfigDeltaTools.changedKeys(users, null, ConfigDeltaToolsTest::toKey));
+        Assert.assertNull(ConfigDeltaTools.changedKeys(null, Collections.emptyList(), ConfigDeltaToolsTest::toKey));
+
+        // Empty lists are compared item by item
+        Assert.assertEquals(Collections.emptySet(), ConfigDeltaTools.changedKeys(Collections.emptyList(), Collections.emptyList(), ConfigDeltaToolsTest::toKey));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("u1@%")), ConfigDeltaTools.changedKeys(Collections.emptyList(), users, ConfigDeltaToolsTest::toKey));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("u1@%")), ConfigDeltaTools.changedKeys(users, Collections.emptyList(), ConfigDeltaToolsTest::toKey));
+    }
+
+    @Test
+    public void testFilterByKeys() {
+        List<MariadbManagerConfigUserAndGrants> users = Arrays.asList(user("u1", "a"), user("u2", "a"), user("u3", "a"));
+
+        List<MariadbManagerConfigUserAndGrants> filtered = ConfigDeltaTools.filterByKeys(users, new TreeSet<>(Arrays.asList("u1@%", "u3@%", "missing@%")), ConfigDeltaToolsTest::toKey);
+        Assert.assertEquals(Arrays.asList("u1", "u3"), Arrays.asList(filtered.get(0).getName(), filtered.get(1).getName()));
+        Assert.assertEquals(2, filtered.size());
+
+        Assert.assertNull(ConfigDeltaTools.filterByKeys(null, new TreeSet<>(Arrays.asList("u1@%")), ConfigDeltaToolsTest::toKey));
+        Assert.assertEquals(Collections.emptyList(), ConfigDeltaTools.filterByKeys(users, Collections.emptySet(), ConfigDeltaToolsTest::toKey));
+    }
+
+    @Test
+    public void testIsSame() {
+        Assert.assertTrue(ConfigDeltaTools.isSame(Arrays.asList("a", "b"), Arrays.asList("a", "b")));
+        Assert.assertFalse(ConfigDeltaTools.isSame(Arrays.asList("a", "b"), Arrays.asList("b", "a")));
+        Assert.assertTrue(ConfigDeltaTools.isSame(null, null));
+        Assert.assertFalse(ConfigDeltaTools.isSame(null, Collections.emptyList()));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConfigDirWatcherTest {
+
+    @Test(timeout = 30000)
+    public void testEvents() throws Exception {
+        Path configDir = Files.createTempDirectory("configDir");
+        Files.write(configDir.resolve("existing.json"), "{}".getBytes());
+        Files.write(configDir.resolve("ignored.txt"), "{}".getBytes());
+
+        ManageScheduler scheduler = new ManageScheduler(1, 1);
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        try (ConfigDirWatcher watcher = new ConfigDirWatcher(configDir.toString(), scheduler, //
+                file -> events.add("changed " + file.getName()), //
+                file -> events.add("removed " + file.getName()))) {
+            watcher.start();
+            Assert.assertEquals("changed existing.json", events.poll(10, TimeUnit.SECONDS));
+
+            // A burst of writes is one change
+            Path newFile = configDir.resolve("new.json");
+            for (int i = 0; i < 5; ++i) {
+                Files.write(newFile, ("{\"i\":" + i + "}").getBytes());
+            }
+            Assert.assertEquals("changed new.json", events.poll(10, TimeUnit.SECONDS));
+            Assert.assertNull(events.poll(2, TimeUnit.SECONDS));
+
+            Files.delete(newFile);
+            Assert.assertEquals("removed new.json", events.poll(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown();
+            for (File file : configDir.toFile().listFiles()) {
+                file.delete();
+            }
+            configDir.toFile().delete();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testEvents_continueAfterProblem() throws Exception {
+        Path configDir = Files.createTempDirectory("configDir");
+
+        CountDownLatch rejected = new CountDownLatch(1);
+        AtomicBoolean rejectNext = new AtomicBoolean();
+        ManageScheduler scheduler = new ManageScheduler(1, 1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable runnable, long delayInMs) {
+                if (rejectNext.compareAndSet(true, false)) {
+                    rejected.countDown();
+                    throw new RejectedExecutionException("Rejected for the test");
+                }
+                return super.schedule(runnable, delayInMs);
+            }
+        };
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        try (ConfigDirWatcher watcher = new ConfigDirWatcher(configDir.toString(), scheduler, //
+                file -> events.add("changed " + file.getName()), //
+                file -> events.add("removed " + file.getName()))) {
+            watcher.start();
+
+            // The events failing to be dispatched do not stop the watch
+            rejectNext.set(true);
+            Files.write(configDir.resolve("rejected.json"), "{}".getBytes());
+            Assert.assertTrue(rejected.await(10, TimeUnit.SECONDS));
+
+            Files.write(configDir.resolve("next.json"), "{}".getBytes());
+            Assert.assertEquals("changed next.json", events.poll(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown();
+            for (File file : configDir.toFile().listFiles()) {
+                file.delete();
+            }
+            configDir.toFile().delete();
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.exception.ProblemException;
+
+public class GenerateManageConfigCommandTest {
+
+    private static void assertInvalid(GenerateManageConfigOptions options, String expectedOptionName) {
+        try {
+            GenerateManageConfigCommand.validate(options);
+            Assert.fail("Expecting a failure");
+        } catch (ProblemException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(expectedOptionName));
+        }
+    }
+
+    @Test
+    public void testValidate() {
+        GenerateManageConfigOptions options = new GenerateManageConfigOptions();
+        GenerateManageConfigCommand.validate(options);
+
+        options.setDatabases(0);
+        assertInvalid(options, "--databases");
+
+        options = new GenerateManageConfigOptions();
+        options.setAddedPercent(101);
+        assertInvalid(options, "--addedPercent");
+
+        options = new GenerateManageConfigOptions();
+        options.setRemovedPercent(-1);
+        assertInvalid(options, "--removedPercent");
+
+        options = new GenerateManageConfigOptions();
+        options.setModifiedPercent(200);
+        assertInvalid(options, "--modifiedPercent");
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.manage.mariadb.MariadbManagerConfig;
+import com.foilen.databasetools.manage.mariadb.MariadbManagerConfigUserAndGrants;
+import com.foilen.databasetools.manage.mongodb.MongodbManagerConfig;
+import com.foilen.smalltools.tools.JsonTools;
+
+public class ManageConfigGeneratorTest {
+
+    private static String generate(String databaseType, int generation) throws Exception {
+        GenerateManageConfigOptions options = new GenerateManageConfigOptions();
+        options.setDatabaseType(databaseType);
+        options.setDatabases(20);
+        options.setUsers(1000);
+        options.setGeneration(generation);
+        options.setAddedPercent(5);
+        options.setRemovedPercent(5);
+        options.setModifiedPercent(10);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ManageConfigGenerator(options).generate(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testGenerate_mariadbChurn() throws Exception {
+        Assert.assertEquals(generate("mariadb", 1), generate("mariadb", 1));
+
+        MariadbManagerConfig first = JsonTools.readFromString(generate("mariadb", 0), MariadbManagerConfig.class);
+        MariadbManagerConfig second = JsonTools.readFromString(generate("mariadb", 1), MariadbManagerConfig.class);
+        Assert.assertEquals(20, first.getDatabases().size());
+        Assert.assertEquals(1000, first.getUsersPermissions().size());
+
+        Map<String, MariadbManagerConfigUserAndGrants> firstByName = first.getUsersPermissions().stream() //
+                .collect(Collectors.toMap(MariadbManagerConfigUserAndGrants::getName, Function.identity()));
+        Map<String, MariadbManagerConfigUserAndGrants> secondByName = second.getUsersPermissions().stream() //
+                .collect(Collectors.toMap(MariadbManagerConfigUserAndGrants::getName, Function.identity()));
+        long added = secondByName.keySet().stream().filter(name -> !firstByName.containsKey(name)).count();
+        long removed = firstByName.keySet().stream().filter(name -> !secondByName.containsKey(name)).count();
+        long modified = secondByName.values().stream() //
+                .filter(user -> firstByName.containsKey(user.getName())) //
+                .filter(user -> !user.getPassword().equals(firstByName.get(user.getName()).getPassword())) //
+                .count();
+        Assert.assertEquals(50, added);
+        Assert.assertTrue("removed: " + removed, removed > 20 && removed < 80);
+        Assert.assertTrue("modified: " + modified, modified > 50 && modified < 150);
+    }
+
+    @Test
+    public void testGenerate_mongodb() throws Exception {
+        MongodbManagerConfig config = JsonTools.readFromString(generate("mongodb", 0), MongodbManagerConfig.class);
+        Assert.assertEquals(20, config.getDatabases().size());
+        Assert.assertEquals(1000, config.getUsersPermissions().size());
+        Assert.assertEquals(20 * 5, config.toFlatRoles().size());
+        Assert.assertEquals(2, config.getUsersPermissions().get(0).getRolesByDatabase().size());
+    }
+
+}
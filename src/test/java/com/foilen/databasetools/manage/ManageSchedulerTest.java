@@ -0,0 +1,56 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.ThreadTools;
+
+public class ManageSchedulerTest {
+
+    @Test(timeout = 10000)
+    public void testExecuteForServer() throws Exception {
+        ManageScheduler scheduler = new ManageScheduler(4, 1);
+        try {
+            AtomicInteger runningOnServer1 = new AtomicInteger();
+            AtomicInteger maxRunningOnServer1 = new AtomicInteger();
+            List<Integer> server1Order = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(6);
+
+            for (int i = 0; i < 5; ++i) {
+                int id = i;
+                scheduler.executeForServer("server1", () -> {
+                    maxRunningOnServer1.accumulateAndGet(runningOnServer1.incrementAndGet(), Math::max);
+                    server1Order.add(id);
+                    ThreadTools.sleep(20);
+                    runningOnServer1.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            scheduler.executeForServer("server2", done::countDown);
+
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, maxRunningOnServer1.get());
+            Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), server1Order);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+}
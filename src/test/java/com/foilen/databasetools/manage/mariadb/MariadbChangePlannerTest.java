@@ -0,0 +1,136 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.manage.ConfigDeltaTools;
+
+public class MariadbChangePlannerTest {
+
+    private static MariadbManagerConfigUserAndGrants user(String name, List<String> globalGrants, String database, List<String> databaseGrants) {
+        MariadbManagerConfigUserAndGrants user = new MariadbManagerConfigUserAndGrants(name, "%");
+        user.setGlobalGrants(globalGrants);
+        user.setGrantsByDatabase(new HashMap<>());
+        if (database != null) {
+            user.getGrantsByDatabase().put(database, databaseGrants);
+        }
+        return user;
+    }
+
+    private static List<String> toStrings(MariadbChangePlanner planner) {
+        return planner.getPlan().getOperations().stream().map(MariadbChangeOperation::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPlanAllUsersAndGrants_batchedPerScope() {
+        MariadbChangePlanner planner = new MariadbChangePlanner();
+        planner.planAllUsersAndGrants( //
+                Arrays.asList(user("u1", Arrays.asList("SELECT", "PROCESS"), "db1", Arrays.asList("SELECT", "DROP", "ALTER"))), //
+                null, //
+                Arrays.asList(user("u1", Arrays.asList("SELECT", "RELOAD", "SHOW DB"), "db1", Arrays.asList("SELECT", "INSERT", "UPDATE"))));
+
+        Assert.assertEquals(Arrays.asList( //
+                "USER_PRIVILEGE_GLOBAL_REVOKE user='u1'@'%' privileges=[PROCESS]", //
+                "USER_PRIVILEGE_GLOBAL_GRANT user='u1'@'%' privileges=[RELOAD, SHOW DB]", //
+                "USER_PRIVILEGE_DATABASE_REVOKE user='u1'@'%' database=db1 privileges=[ALTER, DROP]", //
+                "USER_PRIVILEGE_DATABASE_GRANT user='u1'@'%' database=db1 privileges=[INSERT, UPDATE]", //
+                "USER_PRIVILEGES_FLUSH" //
+        ), toStrings(planner));
+    }
+
+    @Test
+    public void testPlanAllUsersAndGrants_deltaDropsRemovedUser() {
+        List<MariadbManagerConfigUserAndGrants> previousConfig = Arrays.asList( //
+                user("kept", Collections.emptyList(), "db1", Arrays.asList("SELECT")), //
+                user("removed", Collections.emptyList(), "db1", Arrays.asList("SELECT")));
+        List<MariadbManagerConfigUserAndGrants> nextConfig = Arrays.asList( //
+                user("kept", Collections.emptyList(), "db1", Arrays.asList("SELECT")));
+        List<MariadbManagerConfigUserAndGrants> currentUsers = Arrays.asList( //
+                user("kept", Collections.emptyList(), "db1", Arrays.asList("SELECT")), //
+                user("removed", Collections.emptyList(), "db1", Arrays.asList("SELECT")), //
+                user("other", Collections.emptyList(), "db1", Arrays.asList("SELECT")));
+
+        // Only the changed users are read and planned, like MariadbManageProcess does on a delta execution
+        Function<MariadbManagerConfigUserAndGrants, String> keyFunction = user -> user.getName() + "@" + user.getHost();
+        Set<String> changedUsers = ConfigDeltaTools.changedKeys(previousConfig, nextConfig, keyFunction);
+        Assert.assertEquals(Collections.singleton("removed@%"), changedUsers);
+
+        MariadbChangePlanner planner = new MariadbChangePlanner();
+        planner.planAllUsersAndGrants( //
+                ConfigDeltaTools.filterByKeys(currentUsers, changedUsers, keyFunction), //
+                null, //
+                ConfigDeltaTools.filterByKeys(nextConfig, changedUsers, keyFunction));
+
+        Assert.assertEquals(Arrays.asList( //
+                "USER_DELETE user='removed'@'%'", //
+                "USER_PRIVILEGES_FLUSH" //
+        ), toStrings(planner));
+    }
+
+    @Test
+    public void testPlanAllUsersAndGrants_newUserGetsAllDesiredPrivilegesWhenAll() {
+        MariadbChangePlanner planner = new MariadbChangePlanner().setAllDatabasePrivileges(new TreeSet<>(Arrays.asList("INSERT", "SELECT", "UPDATE")));
+        planner.planAllUsersAndGrants( //
+                Arrays.asList(user("u1", Collections.emptyList(), "db1", Arrays.asList("SELECT"))), //
+                null, //
+                Arrays.asList( //
+                        user("u1", Collections.emptyList(), "db1", Arrays.asList("SELECT", "INSERT", "UPDATE")), //
+                        user("u2", Collections.emptyList(), "db1", Arrays.asList("SELECT", "INSERT"))));
+
+        Assert.assertEquals(Arrays.asList( //
+                "USER_CREATE user='u2'@'%'", //
+                "USER_PRIVILEGE_DATABASE_GRANT user='u1'@'%' database=db1 privileges=[INSERT, SELECT, UPDATE]", //
+                "USER_PRIVILEGE_DATABASE_GRANT user='u2'@'%' database=db1 privileges=[INSERT, SELECT]", //
+                "USER_PRIVILEGES_FLUSH" //
+        ), toStrings(planner));
+    }
+
+    @Test
+    public void testPlanAllUsersAndGrants_clearPassword() {
+        MariadbManagerConfigUserAndGrants currentSame = new MariadbManagerConfigUserAndGrants("same", "%");
+        currentSame.setHashedPassword("*AA1420F182E88B9E5F874F6FBE7459291E8F4601");
+        MariadbManagerConfigUserAndGrants currentDifferent = new MariadbManagerConfigUserAndGrants("different", "%");
+        currentDifferent.setHashedPassword("*2470C0C06DEE42FD1618BB99005ADCA2EC9D1E19");
+
+        MariadbChangePlanner planner = new MariadbChangePlanner();
+        planner.planAllUsersAndGrants( //
+                Arrays.asList(currentSame, currentDifferent), //
+                null, //
+                Arrays.asList(new MariadbManagerConfigUserAndGrants("same", "%", "qwerty"), new MariadbManagerConfigUserAndGrants("different", "%", "qwerty")));
+
+        Assert.assertEquals(Arrays.asList( //
+                "USER_PASSWORD_UPDATE user='different'@'%'", //
+                "USER_PRIVILEGES_FLUSH" //
+        ), toStrings(planner));
+    }
+
+    @Test
+    public void testPlanAllUsersAndGrants_noChanges() {
+        MariadbChangePlanner planner = new MariadbChangePlanner();
+        planner.planAllUsersAndGrants( //
+                Arrays.asList(user("u1", Arrays.asList("SELECT"), "db1", Arrays.asList("SELECT"))), //
+                null, //
+                Arrays.asList(user("u1", Arrays.asList("SELECT"), "db1", Arrays.asList("SELECT"))));
+
+        Assert.assertFalse(planner.getPlan().hasOperations());
+    }
+
+}
@@ -0,0 +1,23 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mariadb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MariadbPasswordToolsTest {
+
+    @Test
+    public void testNativePasswordHash() {
+        Assert.assertEquals("*2470C0C06DEE42FD1618BB99005ADCA2EC9D1E19", MariadbPasswordTools.nativePasswordHash("password"));
+        Assert.assertEquals("*AA1420F182E88B9E5F874F6FBE7459291E8F4601", MariadbPasswordTools.nativePasswordHash("qwerty"));
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatPrivilege;
+import com.foilen.databasetools.manage.mongodb.model.MongodbFlatRole;
+
+public class MongodbChangePlannerTest {
+
+    private static MongodbFlatRole role(String roleDatabase, String roleName, MongodbFlatPrivilege... privileges) {
+        MongodbFlatRole role = new MongodbFlatRole(roleDatabase, roleName);
+        role.setPrivileges(new ArrayList<>(Arrays.asList(privileges)));
+        return role;
+    }
+
+    private static List<String> toStrings(MongodbChangePlanner planner) {
+        return planner.getPlan().getOperations().stream().map(MongodbChangeOperation::toString).collect(Collectors.toList());
+    }
+
+    private static MongodbManagerConfigUserAndRoles user(String database, String name, String roleDatabase, String... roleNames) {
+        MongodbManagerConfigUserAndRoles user = new MongodbManagerConfigUserAndRoles(database, name);
+        user.setRolesByDatabase(new HashMap<>());
+        user.getRolesByDatabase().put(roleDatabase, new ArrayList<>(Arrays.asList(roleNames)));
+        return user;
+    }
+
+    @Test
+    public void testPlanAllRoles_batchedPerRole() {
+        MongodbChangePlanner planner = new MongodbChangePlanner();
+        planner.planAllRoles( //
+                Arrays.asList(role("db", "r1", //
+                        new MongodbFlatPrivilege("db", "a", null, Arrays.asList("find", "insert")), //
+                        new MongodbFlatPrivilege("db", "b", null, Arrays.asList("find")) //
+                )), //
+                Arrays.asList(role("db", "r1", //
+                        new MongodbFlatPrivilege("db", "a", null, Arrays.asList("find", "update")), //
+                        new MongodbFlatPrivilege("db", "c", null, Arrays.asList("find")), //
+                        new MongodbFlatPrivilege("db", "d", null, Arrays.asList("find")) //
+                )));
+
+        Assert.assertEquals(Arrays.asList( //
+                "ROLE_PRIVILEGES_ADD role=r1@db privileges=[" //
+                        + "MongodbFlatPrivilege [database=db, collection=a, cluster=null] [update], " //
+                        + "MongodbFlatPrivilege [database=db, collection=c, cluster=null] [find], " //
+                        + "MongodbFlatPrivilege [database=db, collection=d, cluster=null] [find]]", //
+                "ROLE_PRIVILEGES_REMOVE role=r1@db privileges=[" //
+                        + "MongodbFlatPrivilege [database=db, collection=a, cluster=null] [insert], " //
+                        + "MongodbFlatPrivilege [database=db, collection=b, cluster=null] [find]]" //
+        ), toStrings(planner));
+    }
+
+    @Test
+    public void testPlanAllUsersAndRoles_batchedPerUser() {
+        MongodbChangePlanner planner = new MongodbChangePlanner();
+        planner.planAllUsersAndRoles( //
+                Arrays.asList(user("db", "u1", "db", "r1", "r2")), //
+                null, //
+                Arrays.asList(user("db", "u1", "db", "r2", "r3", "r4"), user("db", "u2", "db", "r2", "r1")));
+
+        Assert.assertEquals(Arrays.asList( //
+                "USER_ROLES_REVOKE database=db user=u1 rolesByDatabase={db=[r1]}", //
+                "USER_ROLES_GRANT database=db user=u1 rolesByDatabase={db=[r3, r4]}", //
+                "USER_CREATE database=db user=u2 rolesByDatabase={db=[r1, r2]}" //
+        ), toStrings(planner));
+    }
+
+}
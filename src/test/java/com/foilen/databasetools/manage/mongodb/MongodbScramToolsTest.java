@@ -0,0 +1,47 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.mongodb;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.manage.mongodb.model.MongodbScramCredential;
+
+public class MongodbScramToolsTest {
+
+    @Test
+    public void testComputeStoredKey_sha1() {
+        Assert.assertEquals("r8JZyVvkRPwZPEpECThYtEWGWBA=", MongodbScramTools.computeStoredKey(MongodbScramTools.SCRAM_SHA_1, "kind", "qwerty", "QSXCR+Q6sek8bf92", 10000));
+    }
+
+    @Test
+    public void testComputeStoredKey_sha256() {
+        Assert.assertEquals("dPljXFN0JVFRRbK5jH+4mQXFvmqE2smJ9U2IskvsgI0=",
+                MongodbScramTools.computeStoredKey(MongodbScramTools.SCRAM_SHA_256, "kind", "qwerty", "W22ZaJ0SNY7soEsUEjb6gQ==", 15000));
+    }
+
+    @Test
+    public void testIsSamePassword() {
+        Map<String, MongodbScramCredential> credentialsByMechanism = new HashMap<>();
+        credentialsByMechanism.put(MongodbScramTools.SCRAM_SHA_1, new MongodbScramCredential(10000, "QSXCR+Q6sek8bf92", "r8JZyVvkRPwZPEpECThYtEWGWBA="));
+        Assert.assertTrue(MongodbScramTools.isSamePassword("kind", "qwerty", credentialsByMechanism));
+        Assert.assertFalse(MongodbScramTools.isSamePassword("kind", "qwertz", credentialsByMechanism));
+
+        credentialsByMechanism.put(MongodbScramTools.SCRAM_SHA_256, new MongodbScramCredential(15000, "W22ZaJ0SNY7soEsUEjb6gQ==", "dPljXFN0JVFRRbK5jH+4mQXFvmqE2smJ9U2IskvsgI0="));
+        Assert.assertTrue(MongodbScramTools.isSamePassword("kind", "qwerty", credentialsByMechanism));
+        Assert.assertFalse(MongodbScramTools.isSamePassword("kind", "qwertz", credentialsByMechanism));
+
+        Assert.assertFalse(MongodbScramTools.isSamePassword("kind", "qwerty", null));
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.ThreadTools;
+
+public class ChangePlanExecutorTest {
+
+    private static class TestChangeOperation implements ChangeOperation {
+
+        private final String name;
+        private final int phase;
+        private final boolean retryable;
+
+        public TestChangeOperation(String name, int phase) {
+            this(name, phase, true);
+        }
+
+        public TestChangeOperation(String name, int phase, boolean retryable) {
+            this.name = name;
+            this.phase = phase;
+            this.retryable = retryable;
+        }
+
+        @Override
+        public String orderingKey() {
+            return name;
+        }
+
+        @Override
+        public int phase() {
+            return phase;
+        }
+
+        @Override
+        public boolean retryable() {
+            return retryable;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    private static ChangePlan<TestChangeOperation> createPlan() {
+        return new ChangePlan<TestChangeOperation>() //
+                .add(new TestChangeOperation("a", 0)) //
+                .add(new TestChangeOperation("b", 0)) //
+                .add(new TestChangeOperation("c", 1)) //
+                .add(new TestChangeOperation("d", 1));
+    }
+
+    @Test
+    public void testExecute_failureGivesRemainingPlan() {
+        List<String> applied = new ArrayList<>();
+        ChangePlan<TestChangeOperation> plan = createPlan();
+        ChangePlanExecutor<TestChangeOperation> executor = new ChangePlanExecutor<>(1, operation -> {
+            if ("c".equals(operation.name)) {
+                throw new IllegalStateException("Lost connection");
+            }
+            applied.add(operation.name);
+        });
+        try {
+            executor.execute(plan);
+            Assert.fail("Expecting a failure");
+        } catch (IllegalStateException e) {
+        }
+
+        Assert.assertEquals(Arrays.asList("a", "b"), applied);
+        Assert.assertEquals(Arrays.asList("c", "d"), executor.getRemainingPlan(plan).getOperations().stream().map(o -> o.name).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testExecute_failureWaitsForOperationsInProgress() {
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        ChangePlan<TestChangeOperation> plan = new ChangePlan<TestChangeOperation>() //
+                .add(new TestChangeOperation("a", 0)) //
+                .add(new TestChangeOperation("b", 0)) //
+                .add(new TestChangeOperation("c", 0)) //
+                .add(new TestChangeOperation("d", 1));
+        CountDownLatch bStarted = new CountDownLatch(1);
+        ChangePlanExecutor<TestChangeOperation> executor = new ChangePlanExecutor<>(2, operation -> {
+            if ("a".equals(operation.name)) {
+                try {
+                    bStarted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Lost connection");
+            }
+            if ("b".equals(operation.name)) {
+                bStarted.countDown();
+                ThreadTools.sleep(200);
+            }
+            applied.add(operation.name);
+        });
+        try {
+            executor.execute(plan);
+            Assert.fail("Expecting a failure");
+        } catch (IllegalStateException e) {
+        }
+
+        Assert.assertEquals(Arrays.asList("b"), applied);
+        Assert.assertEquals(Arrays.asList("a", "c", "d"), executor.getRemainingPlan(plan).getOperations().stream().map(o -> o.name).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testExecute_notRetryableOperation() {
+        List<String> attempts = new ArrayList<>();
+        ChangePlan<TestChangeOperation> plan = new ChangePlan<TestChangeOperation>() //
+                .add(new TestChangeOperation("a", 0)) //
+                .add(new TestChangeOperation("b", 0, false)) //
+                .add(new TestChangeOperation("c", 1));
+        ChangePlanExecutor<TestChangeOperation> executor = new ChangePlanExecutor<TestChangeOperation>(1, operation -> {
+            attempts.add(operation.name);
+            if ("b".equals(operation.name)) {
+                throw new IllegalStateException("Lost connection");
+            }
+        }).setRetry(3, e -> e instanceof IllegalStateException);
+        try {
+            executor.execute(plan);
+            Assert.fail("Expecting a failure");
+        } catch (IllegalStateException e) {
+        }
+
+        Assert.assertEquals(Arrays.asList("a", "b"), attempts);
+        Assert.assertEquals(Arrays.asList("b", "c"), executor.getRemainingPlan(plan).getOperations().stream().map(o -> o.name).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testExecute_retryable() {
+        List<String> attempts = new ArrayList<>();
+        ChangePlan<TestChangeOperation> plan = createPlan();
+        ChangePlanExecutor<TestChangeOperation> executor = new ChangePlanExecutor<TestChangeOperation>(1, operation -> {
+            attempts.add(operation.name);
+            if ("c".equals(operation.name) && attempts.stream().filter("c"::equals).count() < 3) {
+                throw new IllegalStateException("Lost connection");
+            }
+        }).setRetry(3, e -> e instanceof IllegalStateException);
+        executor.execute(plan);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "c", "c", "d"), attempts);
+        Assert.assertFalse(executor.getRemainingPlan(plan).hasOperations());
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.shard;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void testGetOwner_balanced() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"));
+        Map<String, Integer> countByOwner = new HashMap<>();
+        for (int i = 0; i < 3000; ++i) {
+            countByOwner.merge(ring.getOwner("/data/configs/config-" + i + ".json"), 1, Integer::sum);
+        }
+        Assert.assertEquals(3, countByOwner.size());
+        countByOwner.values().forEach(count -> Assert.assertTrue("Unbalanced: " + countByOwner, count > 600 && count < 1400));
+    }
+
+    @Test
+    public void testGetOwner_onlyTheNewMemberTakesKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"));
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"));
+        int moved = 0;
+        for (int i = 0; i < 3000; ++i) {
+            String key = "/data/configs/config-" + i + ".json";
+            String ownerAfter = after.getOwner(key);
+            if (!before.getOwner(key).equals(ownerAfter)) {
+                Assert.assertEquals("d", ownerAfter);
+                ++moved;
+            }
+        }
+        Assert.assertTrue("Moved: " + moved, moved > 400 && moved < 1100);
+
+        Assert.assertNull(new ConsistentHashRing(Collections.emptyList()).getOwner("any"));
+    }
+
+}
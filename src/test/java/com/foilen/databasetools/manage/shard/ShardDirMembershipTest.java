@@ -0,0 +1,85 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.manage.shard;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.manage.ManageScheduler;
+
+public class ShardDirMembershipTest {
+
+    @Test(timeout = 30000)
+    public void testJoinAndLeave() throws Exception {
+        Path shardDir = Files.createTempDirectory("shardDir");
+
+        ManageScheduler scheduler = new ManageScheduler(2, 1);
+        BlockingQueue<String> instance1Changes = new LinkedBlockingQueue<>();
+        BlockingQueue<String> instance2Changes = new LinkedBlockingQueue<>();
+        try (ShardDirMembership instance1 = new ShardDirMembership(shardDir.toString(), "instance1", scheduler, 100, ring -> instance1Changes.add(ring.toString())); //
+                ShardDirMembership instance2 = new ShardDirMembership(shardDir.toString(), "instance/2", scheduler, 100, ring -> instance2Changes.add(ring.toString()))) {
+
+            // Alone
+            instance1.start();
+            Assert.assertEquals("[instance1]", instance1Changes.poll(5, TimeUnit.SECONDS));
+
+            // Joined
+            instance2.start();
+            Assert.assertEquals("instance_2", instance2.getInstanceId());
+            Assert.assertEquals("[instance1, instance_2]", instance1Changes.poll(5, TimeUnit.SECONDS));
+            Assert.assertEquals("[instance1, instance_2]", instance2Changes.poll(5, TimeUnit.SECONDS));
+            Assert.assertEquals(new TreeSet<>(Arrays.asList("instance1", "instance_2")), instance2.getRing().getMembers());
+
+            // Left
+            instance2.close();
+            Assert.assertEquals("[instance1]", instance1Changes.poll(5, TimeUnit.SECONDS));
+            Assert.assertEquals(new TreeSet<>(Collections.singletonList("instance1")), instance1.getRing().getMembers());
+        } finally {
+            scheduler.shutdown();
+            for (File file : shardDir.toFile().listFiles()) {
+                file.delete();
+            }
+            shardDir.toFile().delete();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testLostDirectory() throws Exception {
+        Path shardDir = Files.createTempDirectory("shardDir");
+
+        ManageScheduler scheduler = new ManageScheduler(2, 1);
+        BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+        try (ShardDirMembership instance = new ShardDirMembership(shardDir.toString(), "instance", scheduler, 100, ring -> changes.add(String.valueOf(ring)))) {
+            instance.start();
+            Assert.assertEquals("[instance]", changes.poll(5, TimeUnit.SECONDS));
+
+            // Cannot update anymore
+            for (File file : shardDir.toFile().listFiles()) {
+                file.delete();
+            }
+            shardDir.toFile().delete();
+            Assert.assertEquals("null", changes.poll(5, TimeUnit.SECONDS));
+            Assert.assertNull(instance.getRing());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+}
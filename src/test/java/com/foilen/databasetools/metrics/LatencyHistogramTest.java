@@ -0,0 +1,50 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456, 9876543210L }) {
+            int bucketIndex = LatencyHistogram.bucketIndex(value);
+            long upperBound = LatencyHistogram.bucketUpperBound(bucketIndex);
+            Assert.assertTrue(value + " <= " + upperBound, value <= upperBound);
+            Assert.assertTrue("Error too big for " + value, upperBound - value <= Math.max(1, value / LatencyHistogram.SUB_BUCKETS));
+            if (bucketIndex > 0) {
+                Assert.assertTrue(value + " > " + LatencyHistogram.bucketUpperBound(bucketIndex - 1), value > LatencyHistogram.bucketUpperBound(bucketIndex - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMaxInUs());
+        Assert.assertEquals(500500, histogram.getMeanInUs());
+        long p50 = histogram.getValueAtPercentileInUs(50);
+        Assert.assertTrue("p50 " + p50, p50 >= 500000 && p50 <= 500000 * 107 / 100);
+        long p99 = histogram.getValueAtPercentileInUs(99);
+        Assert.assertTrue("p99 " + p99, p99 >= 990000 && p99 <= 1000000);
+
+        LatencyHistogram snapshot = histogram.snapshotAndReset();
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentileInUs(50));
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class ManageMetricsTest {
+
+    @Test
+    public void testToPrometheusText() {
+        ManageMetrics.observePhase("TestDB", ManageMetrics.PHASE_DIFF, System.currentTimeMillis());
+        ManageMetrics.incrementStatements("TestDB", "GRANT");
+        ManageMetrics.incrementStatements("TestDB", "GRANT");
+        ManageMetrics.incrementRetries("TestDB", "/data/\"quoted\".json");
+
+        String text = ManageMetrics.toPrometheusText();
+        Assert.assertTrue(text, text.contains("# TYPE databasetools_reconcile_phase_duration_seconds histogram\n"));
+        Assert.assertTrue(text, text.contains("databasetools_reconcile_phase_duration_seconds_bucket{database_type=\"TestDB\",phase=\"diff\",le=\"+Inf\"} 1\n"));
+        Assert.assertTrue(text, text.contains("databasetools_reconcile_phase_duration_seconds_count{database_type=\"TestDB\",phase=\"diff\"} 1\n"));
+        Assert.assertTrue(text, text.contains("databasetools_statements_total{database_type=\"TestDB\",type=\"GRANT\"} 2\n"));
+        Assert.assertTrue(text, text.contains("databasetools_retries_total{database_type=\"TestDB\",config=\"/data/\\\"quoted\\\".json\"} 1\n"));
+    }
+
+    @Test(timeout = 10000)
+    public void testServe() throws Exception {
+        try (MetricsHttpServer metricsHttpServer = new MetricsHttpServer(0).start()) {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + metricsHttpServer.getPort() + "/metrics").openConnection();
+            Assert.assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                String text = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+                Assert.assertTrue(text, text.contains("# TYPE databasetools_statements_total counter\n"));
+            }
+        }
+    }
+
+}
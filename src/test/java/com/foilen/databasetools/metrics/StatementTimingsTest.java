@@ -0,0 +1,64 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.metrics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class StatementTimingsTest {
+
+    @Test
+    public void testTime() throws Exception {
+        Path recordingFile = Files.createTempFile("statementTimings", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.foilen.databasetools.DatabaseOperation").withoutThreshold();
+            recording.start();
+
+            Assert.assertEquals("done", StatementTimings.time("TestDB", "server1:3306", "/data/config.json", "GRANT", "user1", () -> "done"));
+            try {
+                StatementTimings.time("TestDB", "server1:3306", "/data/config.json", "REVOKE", "user1", () -> {
+                    throw new IllegalStateException("Lock wait timeout");
+                });
+                Assert.fail("Expecting an exception");
+            } catch (IllegalStateException e) {
+            }
+
+            recording.stop();
+            recording.dump(recordingFile);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream() //
+                    .filter(event -> "TestDB".equals(event.getString("databaseType"))) //
+                    .collect(Collectors.toList());
+            Assert.assertEquals(2, events.size());
+            Assert.assertEquals("GRANT", events.get(0).getString("operation"));
+            Assert.assertEquals("/data/config.json", events.get(0).getString("configFile"));
+            Assert.assertFalse(events.get(0).getBoolean("failed"));
+            Assert.assertEquals("REVOKE", events.get(1).getString("operation"));
+            Assert.assertTrue(events.get(1).getBoolean("failed"));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+
+        String summary = StatementTimings.toSummaryAndReset();
+        Assert.assertTrue(summary, summary.contains("TestDB server1:3306 GRANT: 1 ;"));
+        Assert.assertTrue(summary, summary.contains("TestDB server1:3306 REVOKE: 1 ;"));
+        Assert.assertEquals("", StatementTimings.toSummaryAndReset());
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+    Database Tools
+    https://github.com/foilen/database-tools
+    Copyright (c) 2020-2025 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.databasetools.queries;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.databasetools.connection.JdbcUriConfigConnection;
+
+public class SnapshotCacheTest {
+
+    private int slowLoad(AtomicInteger loads, CountDownLatch loadStarted, CountDownLatch loadCanEnd) {
+        int value = loads.incrementAndGet();
+        loadStarted.countDown();
+        try {
+            loadCanEnd.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    @Test
+    public void testGetOrLoad() {
+        JdbcUriConfigConnection configConnection = new JdbcUriConfigConnection();
+        configConnection.setJdbcUri("jdbc:mariadb://snapshot-cache-test:3306");
+        SnapshotCache snapshotCache = SnapshotCache.get(configConnection);
+        Assert.assertSame(snapshotCache, SnapshotCache.get(configConnection));
+
+        AtomicInteger loads = new AtomicInteger();
+
+        // Shared until invalidated
+        Assert.assertEquals(1, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+        Assert.assertEquals(1, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+        snapshotCache.invalidate();
+        Assert.assertEquals(2, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+
+        // Disabled
+        SnapshotCache.setTtlInMs(0);
+        try {
+            Assert.assertEquals(3, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+            Assert.assertEquals(4, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+        } finally {
+            SnapshotCache.setTtlInMs(SnapshotCache.DEFAULT_TTL_IN_MS);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testGetOrLoad_loadInProgress() throws Exception {
+        SnapshotCache snapshotCache = SnapshotCache.get(new JdbcUriConfigConnection().setJdbcUri("jdbc:mariadb://snapshot-cache-progress-test:3306"));
+
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+
+            // The concurrent callers share the read in progress and the other reads do not wait for it
+            CountDownLatch loadStarted = new CountDownLatch(1);
+            CountDownLatch loadCanEnd = new CountDownLatch(1);
+            Future<Integer> first = executorService.submit(() -> snapshotCache.getOrLoad("users", () -> slowLoad(loads, loadStarted, loadCanEnd)));
+            loadStarted.await();
+            Future<Integer> second = executorService.submit(() -> snapshotCache.getOrLoad("users", () -> slowLoad(loads, loadStarted, loadCanEnd)));
+            Assert.assertEquals("other", snapshotCache.getOrLoad("databases", () -> "other"));
+            loadCanEnd.countDown();
+            Assert.assertEquals(1, (int) first.get());
+            Assert.assertEquals(1, (int) second.get());
+
+            // The invalidation does not wait for the read in progress and that read is not given to the next callers
+            snapshotCache.invalidate();
+            CountDownLatch reloadStarted = new CountDownLatch(1);
+            CountDownLatch reloadCanEnd = new CountDownLatch(1);
+            Future<Integer> reload = executorService.submit(() -> snapshotCache.getOrLoad("users", () -> slowLoad(loads, reloadStarted, reloadCanEnd)));
+            reloadStarted.await();
+            snapshotCache.invalidate();
+            reloadCanEnd.countDown();
+            Assert.assertEquals(2, (int) reload.get());
+            Assert.assertEquals(3, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+            Assert.assertEquals(3, (int) snapshotCache.getOrLoad("users", loads::incrementAndGet));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetOrLoad_sameServerOtherUri() {
+        JdbcUriConfigConnection teamA = new JdbcUriConfigConnection().setJdbcUri("jdbc:mariadb://snapshot-cache-server-test:3306/mysql?user=team-a&password=A");
+        JdbcUriConfigConnection teamB = new JdbcUriConfigConnection().setJdbcUri("jdbc:mariadb://Snapshot-Cache-Server-Test:3306/?user=team-b&password=B");
+        SnapshotCache teamACache = SnapshotCache.get(teamA);
+        SnapshotCache teamBCache = SnapshotCache.get(teamB);
+        Assert.assertSame(teamACache, teamBCache);
+
+        AtomicInteger loads = new AtomicInteger();
+
+        // One read shared by both
+        Assert.assertEquals(1, (int) teamACache.getOrLoad("users", loads::incrementAndGet));
+        Assert.assertEquals(1, (int) teamBCache.getOrLoad("users", loads::incrementAndGet));
+
+        // A write through one invalidates the other
+        teamACache.invalidate();
+        Assert.assertEquals(2, (int) teamBCache.getOrLoad("users", loads::incrementAndGet));
+        Assert.assertEquals(2, (int) teamACache.getOrLoad("users", loads::incrementAndGet));
+    }
+
+}